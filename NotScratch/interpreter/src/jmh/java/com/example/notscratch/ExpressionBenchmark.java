@@ -0,0 +1,54 @@
+package com.example.notscratch;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExpressionBenchmark {
+    @Param({
+            "a + b",
+            "a * b + c * d - e",
+            "(a + b) * (c - d) / (e % 7 + 1)",
+            "((a + 1) * (b + 2) - (c + 3) * (d + 4)) % 1000 + -e * 2 - (a - b) / 3"
+    })
+    public String source;
+
+    private ExpressionEvaluator evaluator;
+    private CompiledExpression compiled;
+
+    @Setup
+    public void setUp() {
+        VariableManager variables = new VariableManager();
+        String[] names = { "a", "b", "c", "d", "e" };
+        for (int i = 0; i < names.length; i++) {
+            variables.declareVariable(names[i]);
+            variables.setVariable(names[i], i * 13 + 5);
+        }
+        evaluator = new ExpressionEvaluator(variables);
+        compiled = evaluator.compile(source);
+    }
+
+    @Benchmark
+    public CompiledExpression parse() {
+        return evaluator.compileUncached(source);
+    }
+
+    @Benchmark
+    public int evaluateCompiled() {
+        return evaluator.evaluate(compiled);
+    }
+
+    @Benchmark
+    public int evaluateSource() {
+        return evaluator.evaluate(source);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.notscratch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProgramBenchmark {
+    @Param({ "countedLoop", "conditions", "straightLine" })
+    public String scenario;
+
+    private VariableManager variables;
+    private ExpressionEvaluator evaluator;
+    private ProgramCompiler compiler;
+    private VirtualMachine virtualMachine;
+    private OutputBuffer output;
+    private List<Block> blocks;
+    private CompiledProgram program;
+
+    @Setup
+    public void setUp() {
+        variables = new VariableManager();
+        evaluator = new ExpressionEvaluator(variables);
+        compiler = new ProgramCompiler(variables.getSymbols(), evaluator);
+        virtualMachine = new VirtualMachine(variables, evaluator);
+        output = new OutputBuffer();
+        blocks = createProgram(scenario);
+        program = compiler.compile(blocks);
+    }
+
+    @Benchmark
+    public List<Block> copyBlocks() {
+        return freshBlocks();
+    }
+
+    @Benchmark
+    public CompiledProgram compile() {
+        return compiler.compile(freshBlocks());
+    }
+
+    @Benchmark
+    public CompiledProgram relink() {
+        return compiler.compile(blocks);
+    }
+
+    @Benchmark
+    public long run() {
+        variables.clear();
+        output.clear();
+        virtualMachine.run(program, ExecutionBudget.defaults(), output, null);
+        return output.getNextIndex();
+    }
+
+    private List<Block> freshBlocks() {
+        List<Block> copies = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            copies.add(new Block(block.getType(), block.getCode(), block.getDescription()));
+        }
+        return copies;
+    }
+
+    private static List<Block> createProgram(String scenario) {
+        List<Block> blocks = new ArrayList<>();
+        switch (scenario) {
+            case "countedLoop":
+                blocks.add(new Block(BlockType.VARIABLE_DECLARATION, "int i, s, k", ""));
+                blocks.add(new Block(BlockType.ASSIGNMENT, "k = 3", ""));
+                blocks.add(new Block(BlockType.FOR_LOOP,
+                        "for (i = 0; i < 10000; i = i + 1) { s = s + i * k; s = s % 100000 }", ""));
+                break;
+            case "conditions":
+                blocks.add(new Block(BlockType.VARIABLE_DECLARATION, "int i, s", ""));
+                for (int i = 0; i < 500; i++) {
+                    blocks.add(new Block(BlockType.ASSIGNMENT, "i = " + i, ""));
+                    blocks.add(new Block(BlockType.IF_STATEMENT,
+                            "if ((i * 7 + s) % 3 == 0) { s = s + i } else { s = s - 1; i = i * 2 }", ""));
+                    blocks.add(new Block(BlockType.IF_STATEMENT,
+                            "if (i % 2 == 0) {\n"
+                                    + "    if (s > i) { s = s - i } else { s = s + 1 }\n"
+                                    + "} else if (i % 3 == 0) {\n"
+                                    + "    if (s % 5 == 0) { s = s * 2 % 1000 }\n"
+                                    + "} else {\n"
+                                    + "    s = s + 3\n"
+                                    + "}", ""));
+                }
+                break;
+            case "straightLine":
+                blocks.add(new Block(BlockType.VARIABLE_DECLARATION, "int a, b, c", ""));
+                for (int i = 0; i < 5000; i++) {
+                    blocks.add(new Block(BlockType.ASSIGNMENT, "a = b + " + i, ""));
+                    blocks.add(new Block(BlockType.ASSIGNMENT, "b = (a * 3 - c) % 1000", ""));
+                    blocks.add(new Block(BlockType.ARITHMETIC, "a + b * c - " + (i % 17), ""));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный сценарий: " + scenario);
+        }
+        return blocks;
+    }
+}
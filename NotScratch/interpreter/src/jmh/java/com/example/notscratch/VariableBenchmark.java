@@ -0,0 +1,77 @@
+package com.example.notscratch;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VariableBenchmark {
+    private static final int ACCESSES = 1024;
+
+    @Param({ "8", "1024" })
+    public int variableCount;
+
+    private VariableManager variables;
+    private String[] names;
+    private int[] slots;
+
+    @Setup
+    public void setUp() {
+        variables = new VariableManager();
+        names = new String[variableCount];
+        for (int i = 0; i < variableCount; i++) {
+            names[i] = "v" + i;
+            variables.declareVariable(names[i]);
+        }
+
+        slots = new int[ACCESSES];
+        for (int i = 0; i < ACCESSES; i++) {
+            slots[i] = variables.getSymbols().find(names[(i * 31) % variableCount]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public int readBySlot() {
+        int sum = 0;
+        for (int slot : slots) {
+            sum += variables.getVariable(slot);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeBySlot() {
+        for (int i = 0; i < ACCESSES; i++) {
+            variables.setVariable(slots[i], i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public int readByName() {
+        int sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += variables.getVariable(names[(i * 31) % variableCount]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeByName() {
+        for (int i = 0; i < ACCESSES; i++) {
+            variables.setVariable(names[(i * 31) % variableCount], i);
+        }
+    }
+}
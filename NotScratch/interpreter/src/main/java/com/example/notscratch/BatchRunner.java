@@ -0,0 +1,157 @@
+package com.example.notscratch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchRunner {
+    public static final String PROGRAM_EXTENSION = ".nsp";
+
+    private interface ProgramSource {
+        List<Block> load(int index) throws IOException;
+    }
+
+    private final ForkJoinPool pool;
+    private final ExecutionBudget budget;
+
+    public BatchRunner(int parallelism, ExecutionBudget budget) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.budget = budget;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public List<ExecutionResult> run(List<List<Block>> programs) {
+        return runAll(programs.size(), programs::get);
+    }
+
+    public List<ExecutionResult> runFiles(List<Path> files) {
+        return runAll(files.size(), index -> ProgramTextFormat.read(files.get(index)));
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private List<ExecutionResult> runAll(int count, ProgramSource source) {
+        List<ForkJoinTask<ExecutionResult>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(pool.submit(() -> runOne(source, index)));
+        }
+
+        List<ExecutionResult> results = new ArrayList<>(count);
+        for (ForkJoinTask<ExecutionResult> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    private ExecutionResult runOne(ProgramSource source, int index) {
+        long start = System.nanoTime();
+        List<Block> blocks;
+        try {
+            blocks = source.load(index);
+        } catch (IOException | RuntimeException e) {
+            return ExecutionResult.failed(e.getMessage(), System.nanoTime() - start);
+        }
+        return new ProgramExecutor().run(blocks, budget);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        long maxInstructions = ExecutionBudget.DEFAULT_MAX_INSTRUCTIONS;
+        long maxMillis = ExecutionBudget.DEFAULT_MAX_MILLIS;
+        long maxMemory = ExecutionBudget.DEFAULT_MAX_MEMORY_BYTES;
+        boolean verbose = false;
+        List<Path> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-j":
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--instructions":
+                    maxInstructions = Long.parseLong(args[++i]);
+                    break;
+                case "--millis":
+                    maxMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--memory":
+                    maxMemory = Long.parseLong(args[++i]);
+                    break;
+                case "-v":
+                case "--verbose":
+                    verbose = true;
+                    break;
+                default:
+                    collectPrograms(Paths.get(args[i]), files);
+                    break;
+            }
+        }
+
+        if (files.isEmpty()) {
+            System.err.println("Использование: BatchRunner [-j потоки] [--instructions N] [--millis N] "
+                    + "[--memory байт] [-v] файлы_или_каталоги...");
+            System.exit(2);
+        }
+
+        BatchRunner runner = new BatchRunner(threads, new ExecutionBudget(maxInstructions, maxMillis, maxMemory));
+        long start = System.nanoTime();
+        List<ExecutionResult> results = runner.runFiles(files);
+        long wallNanos = System.nanoTime() - start;
+        runner.shutdown();
+
+        int[] statusCounts = new int[ExecutionResult.Status.values().length];
+        long totalNanos = 0;
+        long totalInstructions = 0;
+        for (int i = 0; i < results.size(); i++) {
+            ExecutionResult result = results.get(i);
+            statusCounts[result.getStatus().ordinal()]++;
+            totalNanos += result.getElapsedNanos();
+            totalInstructions += result.getInstructions();
+
+            System.out.println(String.format(Locale.ROOT, "%-40s %-10s %12d инстр. %10.2f мс%s",
+                    files.get(i), result.getStatus().getDisplayName(), result.getInstructions(),
+                    result.getElapsedNanos() / 1e6,
+                    result.getMessage() != null ? "  " + result.getMessage().replace('\n', ' ') : ""));
+            if (verbose) {
+                System.out.println(result.getOutput());
+            }
+        }
+
+        System.out.println(String.format(Locale.ROOT,
+                "Программ: %d, выполнено: %d, остановлено: %d, с ошибкой: %d",
+                results.size(), statusCounts[ExecutionResult.Status.COMPLETED.ordinal()],
+                statusCounts[ExecutionResult.Status.STOPPED.ordinal()],
+                statusCounts[ExecutionResult.Status.FAILED.ordinal()]));
+        System.out.println(String.format(Locale.ROOT,
+                "Потоков: %d, время: %.2f мс, суммарно по программам: %.2f мс, инструкций: %d",
+                runner.getParallelism(), wallNanos / 1e6, totalNanos / 1e6, totalInstructions));
+
+        System.exit(statusCounts[ExecutionResult.Status.FAILED.ordinal()] > 0 ? 1 : 0);
+    }
+
+    private static void collectPrograms(Path path, List<Path> files) throws IOException {
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            files.addAll(walk.filter(file -> file.toString().endsWith(PROGRAM_EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.notscratch;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Block {
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final long id;
+    private final BlockType type;
+    private String code;
+    private String description;
+    private int version;
+    private BlockFragment compiledFragment;
+
+    public Block(BlockType type, String code, String description) {
+        this(NEXT_ID.incrementAndGet(), type, code, description);
+    }
+
+    private Block(long id, BlockType type, String code, String description) {
+        this.id = id;
+        this.type = type;
+        this.code = code;
+        this.description = description;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public BlockType getType() {
+        return type;
+    }
+
+    public Block copy() {
+        Block copy = new Block(id, type, code, description);
+        copy.version = version;
+        copy.compiledFragment = compiledFragment;
+        return copy;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        if (this.code.equals(code)) {
+            return;
+        }
+        this.code = code;
+        version++;
+        compiledFragment = null;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    BlockFragment getCompiledFragment() {
+        return compiledFragment;
+    }
+
+    void setCompiledFragment(BlockFragment compiledFragment) {
+        this.compiledFragment = compiledFragment;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+}
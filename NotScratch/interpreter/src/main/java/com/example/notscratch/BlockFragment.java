@@ -0,0 +1,186 @@
+package com.example.notscratch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+final class BlockFragment {
+    final SymbolTable symbols;
+    final int version;
+    final int[] code;
+    final CompiledExpression[] expressions;
+    final String[] strings;
+    final int loopCount;
+    final int cacheRegisterCount;
+
+    BlockFragment(SymbolTable symbols, int version, int[] code, CompiledExpression[] expressions,
+                  String[] strings, int loopCount, int cacheRegisterCount) {
+        this.symbols = symbols;
+        this.version = version;
+        this.code = code;
+        this.expressions = expressions;
+        this.strings = strings;
+        this.loopCount = loopCount;
+        this.cacheRegisterCount = cacheRegisterCount;
+    }
+
+    boolean isValidFor(Block block, SymbolTable symbols) {
+        return this.symbols == symbols && version == block.getVersion();
+    }
+
+    void collectSlots(BitSet reads, BitSet writes) {
+        for (int pc = 0; pc < code.length; pc += 1 + CompiledProgram.OPERAND_COUNTS[code[pc]]) {
+            int op = code[pc];
+            if (writesSlot(op)) {
+                writes.set(code[pc + 1]);
+                if (op == CompiledProgram.OP_ACCUMULATE && code[pc + 2] >= 0) {
+                    reads.set(code[pc + 2]);
+                }
+            } else if (op == CompiledProgram.OP_ARRAY_CALL) {
+                writes.set(code[pc + 2]);
+                if (code[pc + 3] >= 0) {
+                    writes.set(code[pc + 3]);
+                }
+            }
+        }
+        for (CompiledExpression expression : expressions) {
+            for (int pc = 0; pc < expression.code.length; pc += 2) {
+                if (CompiledExpression.readsSlot(expression.code[pc])) {
+                    reads.set(expression.code[pc + 1]);
+                }
+            }
+        }
+    }
+
+    void write(DataOutput out) throws IOException {
+        int[] localSlots = new int[symbols.size()];
+        Arrays.fill(localSlots, -1);
+        List<String> names = new ArrayList<>();
+
+        int[] localCode = code.clone();
+        for (int pc = 0; pc < localCode.length; pc += 1 + CompiledProgram.OPERAND_COUNTS[localCode[pc]]) {
+            int op = localCode[pc];
+            if (writesSlot(op)) {
+                localCode[pc + 1] = localSlot(localCode[pc + 1], localSlots, names);
+                if (op == CompiledProgram.OP_ACCUMULATE && localCode[pc + 2] >= 0) {
+                    localCode[pc + 2] = localSlot(localCode[pc + 2], localSlots, names);
+                }
+            } else if (op == CompiledProgram.OP_ARRAY_CALL) {
+                localCode[pc + 2] = localSlot(localCode[pc + 2], localSlots, names);
+                if (localCode[pc + 3] >= 0) {
+                    localCode[pc + 3] = localSlot(localCode[pc + 3], localSlots, names);
+                }
+            }
+        }
+
+        int[][] expressionCodes = new int[expressions.length][];
+        for (int i = 0; i < expressions.length; i++) {
+            int[] expressionCode = expressions[i].code.clone();
+            for (int pc = 0; pc < expressionCode.length; pc += 2) {
+                if (CompiledExpression.readsSlot(expressionCode[pc])) {
+                    expressionCode[pc + 1] = localSlot(expressionCode[pc + 1], localSlots, names);
+                }
+            }
+            expressionCodes[i] = expressionCode;
+        }
+
+        ProgramStore.writeVarInt(out, names.size());
+        for (String name : names) {
+            ProgramStore.writeString(out, name);
+        }
+        ProgramStore.writeInts(out, localCode);
+        ProgramStore.writeVarInt(out, expressions.length);
+        for (int i = 0; i < expressions.length; i++) {
+            CompiledExpression expression = expressions[i];
+            ProgramStore.writeString(out, expression.getSource());
+            ProgramStore.writeInts(out, expressionCodes[i]);
+            ProgramStore.writeVarInt(out, expression.messages.length);
+            for (String message : expression.messages) {
+                ProgramStore.writeString(out, message);
+            }
+            ProgramStore.writeVarInt(out, expression.maxStack);
+            ProgramStore.writeVarInt(out, expression.constants.length);
+            for (long constant : expression.constants) {
+                out.writeLong(constant);
+            }
+        }
+        ProgramStore.writeVarInt(out, strings.length);
+        for (String string : strings) {
+            ProgramStore.writeString(out, string);
+        }
+        ProgramStore.writeVarInt(out, loopCount);
+        ProgramStore.writeVarInt(out, cacheRegisterCount);
+    }
+
+    static BlockFragment read(DataInput in, SymbolTable symbols, int version) throws IOException {
+        int[] slots = new int[ProgramStore.readVarInt(in)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = symbols.slotOf(ProgramStore.readString(in));
+        }
+
+        int[] code = ProgramStore.readInts(in);
+        for (int pc = 0; pc < code.length; pc += 1 + CompiledProgram.OPERAND_COUNTS[code[pc]]) {
+            int op = code[pc];
+            if (writesSlot(op)) {
+                code[pc + 1] = slots[code[pc + 1]];
+                if (op == CompiledProgram.OP_ACCUMULATE && code[pc + 2] >= 0) {
+                    code[pc + 2] = slots[code[pc + 2]];
+                }
+            } else if (op == CompiledProgram.OP_ARRAY_CALL) {
+                code[pc + 2] = slots[code[pc + 2]];
+                if (code[pc + 3] >= 0) {
+                    code[pc + 3] = slots[code[pc + 3]];
+                }
+            }
+        }
+
+        CompiledExpression[] expressions = new CompiledExpression[ProgramStore.readVarInt(in)];
+        for (int i = 0; i < expressions.length; i++) {
+            String source = ProgramStore.readString(in);
+            int[] expressionCode = ProgramStore.readInts(in);
+            for (int pc = 0; pc < expressionCode.length; pc += 2) {
+                if (CompiledExpression.readsSlot(expressionCode[pc])) {
+                    expressionCode[pc + 1] = slots[expressionCode[pc + 1]];
+                }
+            }
+            String[] messages = new String[ProgramStore.readVarInt(in)];
+            for (int j = 0; j < messages.length; j++) {
+                messages[j] = ProgramStore.readString(in);
+            }
+            int maxStack = ProgramStore.readVarInt(in);
+            long[] constants = new long[ProgramStore.readVarInt(in)];
+            for (int j = 0; j < constants.length; j++) {
+                constants[j] = in.readLong();
+            }
+            expressions[i] = new CompiledExpression(source, expressionCode, messages, maxStack, constants);
+        }
+
+        String[] strings = new String[ProgramStore.readVarInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = ProgramStore.readString(in);
+        }
+        int loopCount = ProgramStore.readVarInt(in);
+        int cacheRegisterCount = ProgramStore.readVarInt(in);
+        return new BlockFragment(symbols, version, code, expressions, strings, loopCount, cacheRegisterCount);
+    }
+
+    private static boolean writesSlot(int op) {
+        return op == CompiledProgram.OP_DECLARE || op == CompiledProgram.OP_DECLARE_WIDE ||
+                op == CompiledProgram.OP_NEW_ARRAY || op == CompiledProgram.OP_ASSIGN ||
+                op == CompiledProgram.OP_ASSIGN_TRACE || op == CompiledProgram.OP_STORE_ELEMENT ||
+                op == CompiledProgram.OP_FOR_COUNTED || op == CompiledProgram.OP_FOR_NEXT ||
+                op == CompiledProgram.OP_ACCUMULATE;
+    }
+
+    private int localSlot(int slot, int[] localSlots, List<String> names) {
+        if (localSlots[slot] < 0) {
+            localSlots[slot] = names.size();
+            names.add(symbols.nameOf(slot));
+        }
+        return localSlots[slot];
+    }
+}
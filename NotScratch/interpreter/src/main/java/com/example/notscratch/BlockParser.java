@@ -0,0 +1,233 @@
+package com.example.notscratch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BlockParser {
+    private final String source;
+    private int pos;
+
+    BlockParser(String source) {
+        this.source = source;
+    }
+
+    Statement parseBlock(BlockType type) {
+        pos = 0;
+        skipWhitespace();
+        String keyword = keywordOf(type);
+        if (!isKeyword(keyword)) {
+            throw error("ожидается '" + keyword + "'");
+        }
+
+        Statement statement = parseStatement();
+        skipSeparators();
+        if (pos < source.length()) {
+            throw error("лишний текст после блока");
+        }
+        return statement;
+    }
+
+    private static String keywordOf(BlockType type) {
+        switch (type) {
+            case IF_STATEMENT: return "if";
+            case WHILE_LOOP: return "while";
+            case FOR_LOOP: return "for";
+            default: throw new IllegalArgumentException("Блок не является составным оператором: " + type);
+        }
+    }
+
+    private List<Statement> parseStatements() {
+        List<Statement> statements = new ArrayList<>();
+        while (true) {
+            skipSeparators();
+            if (pos >= source.length() || source.charAt(pos) == '}') {
+                return statements;
+            }
+            statements.add(parseStatement());
+        }
+    }
+
+    private Statement parseStatement() {
+        int start = pos;
+        if (isKeyword("if")) {
+            pos += 2;
+            return parseIf(start);
+        }
+        if (isKeyword("while")) {
+            pos += 5;
+            String condition = parseHeader();
+            return new Statement.While(start, condition, parseBody());
+        }
+        if (isKeyword("for")) {
+            pos += 3;
+            return parseFor(start);
+        }
+        if (isKeyword("else")) {
+            throw error("else без if");
+        }
+        return parseSimple();
+    }
+
+    private Statement parseIf(int start) {
+        List<String> conditions = new ArrayList<>();
+        List<List<Statement>> branches = new ArrayList<>();
+        List<Statement> elseBranch = null;
+
+        conditions.add(parseHeader());
+        branches.add(parseBody());
+        while (true) {
+            int afterBranch = pos;
+            skipWhitespace();
+            if (!isKeyword("else")) {
+                pos = afterBranch;
+                break;
+            }
+            pos += 4;
+            skipWhitespace();
+            if (isKeyword("if")) {
+                pos += 2;
+                conditions.add(parseHeader());
+                branches.add(parseBody());
+            } else {
+                elseBranch = parseBody();
+                break;
+            }
+        }
+        return new Statement.If(start, conditions, branches, elseBranch);
+    }
+
+    private Statement parseFor(int start) {
+        int headerStart = pos;
+        String header = parseHeader();
+        List<String> parts = splitTopLevel(header);
+        if (parts.size() != 3) {
+            pos = headerStart;
+            throw error("Некорректный цикл for. Ожидается формат: for(инициализация; условие; инкремент)");
+        }
+        return new Statement.For(start, parts.get(0), parts.get(1), parts.get(2), parseBody());
+    }
+
+    private Statement parseSimple() {
+        int start = pos;
+        int depth = 0;
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (c == '}' || depth == 0 && (c == ';' || c == '\n')) {
+                break;
+            }
+            if (c == '{') {
+                throw error("неожиданная '{'");
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            }
+            pos++;
+        }
+        return new Statement.Simple(start, source.substring(start, pos).trim());
+    }
+
+    private String parseHeader() {
+        int start = pos;
+        int depth = 0;
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (c == '{' && depth == 0) {
+                break;
+            }
+            if (c == '}' || c == '{') {
+                throw error("ожидается '{'");
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            }
+            pos++;
+        }
+        if (pos >= source.length()) {
+            throw error("ожидается '{'");
+        }
+        return stripParentheses(source.substring(start, pos).trim());
+    }
+
+    private List<Statement> parseBody() {
+        if (pos >= source.length() || source.charAt(pos) != '{') {
+            throw error("ожидается '{'");
+        }
+        pos++;
+        List<Statement> body = parseStatements();
+        if (pos >= source.length()) {
+            throw error("ожидается '}'");
+        }
+        pos++;
+        return body;
+    }
+
+    private static String stripParentheses(String header) {
+        if (header.isEmpty() || header.charAt(0) != '(') {
+            return header;
+        }
+        int depth = 0;
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i == header.length() - 1 ? header.substring(1, i).trim() : header;
+            }
+        }
+        return header;
+    }
+
+    private static List<String> splitTopLevel(String header) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ';' && depth == 0) {
+                parts.add(header.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        parts.add(header.substring(start).trim());
+        return parts;
+    }
+
+    private boolean isKeyword(String keyword) {
+        int end = pos + keyword.length();
+        return source.startsWith(keyword, pos) &&
+                (end == source.length() || !Character.isLetterOrDigit(source.charAt(end)) && source.charAt(end) != '_');
+    }
+
+    private void skipWhitespace() {
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private void skipSeparators() {
+        while (pos < source.length() && (Character.isWhitespace(source.charAt(pos)) || source.charAt(pos) == ';')) {
+            pos++;
+        }
+    }
+
+    private RuntimeException error(String message) {
+        int line = 1;
+        int lineStart = 0;
+        for (int i = 0; i < pos && i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return new RuntimeException(String.format("Синтаксическая ошибка (строка %d, позиция %d): %s",
+                line, pos - lineStart + 1, message));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.notscratch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+public class BlockPreview {
+    private static final ExecutionBudget PREFIX_BUDGET = new ExecutionBudget(2_000_000L, 500L, 16L * 1024 * 1024);
+    private static final ExecutionBudget BLOCK_BUDGET = new ExecutionBudget(200_000L, 100L, 8L * 1024 * 1024);
+
+    public static final class Result {
+        private final String syntaxError;
+        private final String error;
+        private final Map<String, Object> variables;
+        private final Set<String> changedVariables;
+
+        Result(String syntaxError, String error, Map<String, Object> variables, Set<String> changedVariables) {
+            this.syntaxError = syntaxError;
+            this.error = error;
+            this.variables = variables;
+            this.changedVariables = changedVariables;
+        }
+
+        public boolean hasSyntaxError() {
+            return syntaxError != null;
+        }
+
+        public String getSyntaxError() {
+            return syntaxError;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public Map<String, Object> getVariables() {
+            return variables;
+        }
+
+        public Set<String> getChangedVariables() {
+            return changedVariables;
+        }
+    }
+
+    private final VariableManager variableManager = new VariableManager();
+    private final ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator(variableManager);
+    private final ProgramCompiler programCompiler =
+            new ProgramCompiler(variableManager.getSymbols(), expressionEvaluator);
+    private final VirtualMachine virtualMachine = new VirtualMachine(variableManager, expressionEvaluator);
+
+    private long[] prefixKey = new long[0];
+    private Map<String, Object> prefixVariables = Collections.emptyMap();
+    private String prefixError;
+
+    public synchronized Result preview(List<Block> precedingBlocks, BlockType type, String code) {
+        preparePrefix(precedingBlocks);
+
+        Block candidate = new Block(type, code, "");
+        CompiledProgram program = programCompiler.compile(Collections.singletonList(candidate));
+        BlockFragment fragment = candidate.getCompiledFragment();
+        if (fragment.code.length > 0 && fragment.code[0] == CompiledProgram.OP_FAIL) {
+            return new Result(fragment.strings[fragment.code[1]], null, prefixVariables, Collections.emptySet());
+        }
+
+        List<String> errors = new ArrayList<>();
+        variableManager.restore(prefixVariables);
+        try {
+            virtualMachine.run(program, BLOCK_BUDGET, new OutputBuffer(), message -> errors.add(stripBlockPrefix(message)));
+        } catch (ExecutionAbortedException e) {
+            errors.add(firstLine(e.getMessage()));
+        }
+
+        Map<String, Object> variables = new LinkedHashMap<>(variableManager.getAllVariables());
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, Object> entry : variables.entrySet()) {
+            if (!Objects.deepEquals(prefixVariables.get(entry.getKey()), entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+
+        String error = !errors.isEmpty() ? errors.get(0) : prefixError;
+        return new Result(null, error, variables, changed);
+    }
+
+    private void preparePrefix(List<Block> precedingBlocks) {
+        long[] key = new long[precedingBlocks.size() * 2];
+        int i = 0;
+        for (Block block : precedingBlocks) {
+            key[i++] = block.getId();
+            key[i++] = block.getVersion();
+        }
+        if (Arrays.equals(key, prefixKey)) {
+            return;
+        }
+
+        prefixKey = key;
+        prefixError = null;
+        variableManager.clear();
+        try {
+            virtualMachine.run(programCompiler.compile(precedingBlocks), PREFIX_BUDGET, new OutputBuffer(), null);
+        } catch (ExecutionAbortedException e) {
+            prefixError = "Предыдущие блоки выполнены не полностью: " + firstLine(e.getMessage());
+        }
+        prefixVariables = new LinkedHashMap<>(variableManager.getAllVariables());
+    }
+
+    private static String stripBlockPrefix(String message) {
+        int separator = message.indexOf("): ");
+        return separator >= 0 ? message.substring(separator + 3) : message;
+    }
+
+    private static String firstLine(String message) {
+        int lineEnd = message.indexOf('\n');
+        return lineEnd >= 0 ? message.substring(0, lineEnd) : message;
+    }
+}
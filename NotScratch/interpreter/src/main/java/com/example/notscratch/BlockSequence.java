@@ -0,0 +1,338 @@
+package com.example.notscratch;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+public class BlockSequence extends AbstractList<Block> {
+    private static final class Node {
+        final int priority;
+        Block block;
+        Node left;
+        Node right;
+        Node parent;
+        int size = 1;
+
+        Node(Block block, int priority) {
+            this.block = block;
+            this.priority = priority;
+        }
+    }
+
+    private Node root;
+    private Map<Block, Node> nodes = new IdentityHashMap<>();
+    private boolean duplicates;
+    private int seed = 0x2545F491;
+    private Node splitLeft;
+    private Node splitRight;
+
+    public BlockSequence() {
+    }
+
+    public BlockSequence(Collection<? extends Block> blocks) {
+        root = build(blocks);
+        detachRoot();
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Block get(int index) {
+        return nodeAt(index).block;
+    }
+
+    @Override
+    public Block set(int index, Block block) {
+        Node node = nodeAt(index);
+        Block previous = node.block;
+        unmap(previous, node);
+        node.block = block;
+        map(block, node);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Block block) {
+        checkPosition(index);
+        split(root, index);
+        Node right = splitRight;
+        Node node = new Node(block, nextPriority());
+        map(block, node);
+        root = merge(merge(splitLeft, node), right);
+        detachRoot();
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Block> blocks) {
+        checkPosition(index);
+        if (blocks.isEmpty()) {
+            return false;
+        }
+        split(root, index);
+        Node right = splitRight;
+        root = merge(merge(splitLeft, build(blocks)), right);
+        detachRoot();
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Block> blocks) {
+        return addAll(size(), blocks);
+    }
+
+    @Override
+    public Block remove(int index) {
+        checkIndex(index);
+        split(root, index);
+        Node left = splitLeft;
+        split(splitRight, 1);
+        Node removed = splitLeft;
+        root = merge(left, splitRight);
+        detachRoot();
+        unmap(removed.block, removed);
+        modCount++;
+        return removed.block;
+    }
+
+    public void move(int from, int to) {
+        checkIndex(from);
+        checkIndex(to);
+        if (from == to) {
+            return;
+        }
+        split(root, from);
+        Node left = splitLeft;
+        split(splitRight, 1);
+        Node moved = splitLeft;
+        split(merge(left, splitRight), to);
+        Node right = splitRight;
+        root = merge(merge(splitLeft, moved), right);
+        detachRoot();
+        modCount++;
+    }
+
+    public void swap(BlockSequence other) {
+        Node swapped = root;
+        root = other.root;
+        other.root = swapped;
+        Map<Block, Node> swappedNodes = nodes;
+        nodes = other.nodes;
+        other.nodes = swappedNodes;
+        boolean swappedDuplicates = duplicates;
+        duplicates = other.duplicates;
+        other.duplicates = swappedDuplicates;
+        modCount++;
+        other.modCount++;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        nodes.clear();
+        duplicates = false;
+        modCount++;
+    }
+
+    @Override
+    public int indexOf(Object block) {
+        if (!duplicates) {
+            Node node = nodes.get(block);
+            return node == null ? -1 : rank(node);
+        }
+        int index = 0;
+        for (Block candidate : this) {
+            if (candidate == null ? block == null : candidate.equals(block)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    @Override
+    public Iterator<Block> iterator() {
+        return new Iterator<Block>() {
+            private final Deque<Node> path = new ArrayDeque<>();
+            private final int expectedModCount = modCount;
+
+            {
+                descend(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public Block next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = path.pop();
+                descend(node.right);
+                return node.block;
+            }
+
+            private void descend(Node node) {
+                while (node != null) {
+                    path.push(node);
+                    node = node.left;
+                }
+            }
+        };
+    }
+
+    private Node nodeAt(int index) {
+        checkIndex(index);
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static int rank(Node node) {
+        int rank = size(node.left);
+        while (node.parent != null) {
+            if (node.parent.right == node) {
+                rank += size(node.parent.left) + 1;
+            }
+            node = node.parent;
+        }
+        return rank;
+    }
+
+    private void map(Block block, Node node) {
+        if (nodes.put(block, node) != null) {
+            duplicates = true;
+        }
+    }
+
+    private void unmap(Block block, Node node) {
+        if (nodes.get(block) == node) {
+            nodes.remove(block);
+        }
+    }
+
+    private void detachRoot() {
+        if (root != null) {
+            root.parent = null;
+        }
+    }
+
+    private void split(Node node, int count) {
+        if (node == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+        if (size(node.left) >= count) {
+            split(node.left, count);
+            node.left = splitRight;
+            update(node);
+            splitRight = node;
+        } else {
+            split(node.right, count - size(node.left) - 1);
+            node.right = splitLeft;
+            update(node);
+            splitLeft = node;
+        }
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private Node build(Collection<? extends Block> blocks) {
+        Deque<Node> spine = new ArrayDeque<>();
+        for (Block block : blocks) {
+            Node node = new Node(block, nextPriority());
+            map(block, node);
+            Node last = null;
+            while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+                last = spine.pop();
+                update(last);
+            }
+            node.left = last;
+            if (!spine.isEmpty()) {
+                spine.peek().right = node;
+            }
+            spine.push(node);
+        }
+
+        Node top = null;
+        while (!spine.isEmpty()) {
+            top = spine.pop();
+            update(top);
+        }
+        return top;
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Индекс " + index + " вне диапазона 0.." + (size() - 1));
+        }
+    }
+
+    private void checkPosition(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Индекс " + index + " вне диапазона 0.." + size());
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.notscratch;
+
+public enum BlockType {
+    VARIABLE_DECLARATION("Объявление переменной", "#4CAF50"),
+    ASSIGNMENT("Присваивание", "#2196F3"),
+    ARITHMETIC("Арифметика", "#FF9800"),
+    IF_STATEMENT("Условие", "#9C27B0"),
+    WHILE_LOOP("Цикл While", "#607D8B"),
+    FOR_LOOP("Цикл For", "#795548");
+
+    private final String displayName;
+    private final String color;
+
+    BlockType(String displayName, String color) {
+        this.displayName = displayName;
+        this.color = color;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getColor() {
+        return color;
+    }
+}
\ No newline at end of file
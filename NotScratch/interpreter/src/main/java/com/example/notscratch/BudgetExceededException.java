@@ -0,0 +1,9 @@
+package com.example.notscratch;
+
+public class BudgetExceededException extends ExecutionAbortedException {
+    private static final long serialVersionUID = 1L;
+
+    public BudgetExceededException(String message) {
+        super(message);
+    }
+}
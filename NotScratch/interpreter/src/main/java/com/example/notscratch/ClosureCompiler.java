@@ -0,0 +1,226 @@
+package com.example.notscratch;
+
+final class ClosureCompiler {
+    private static final int CONST = 0;
+    private static final int LOAD = 1;
+    private static final int NODE = 2;
+
+    interface IntClosure {
+        int evaluate(VariableManager variables, ExpressionEvaluator evaluator);
+    }
+
+    private static final class Operand {
+        final int kind;
+        final int value;
+        final IntClosure node;
+
+        Operand(int kind, int value, IntClosure node) {
+            this.kind = kind;
+            this.value = value;
+            this.node = node;
+        }
+    }
+
+    private ClosureCompiler() {
+    }
+
+    static IntClosure compile(CompiledExpression expression) {
+        int[] code = expression.code;
+        Operand[] stack = new Operand[code.length / 2 + 1];
+        int sp = 0;
+
+        for (int pc = 0; pc < code.length; pc += 2) {
+            int operand = code[pc + 1];
+            switch (code[pc]) {
+                case CompiledExpression.OP_CONST:
+                    stack[sp++] = new Operand(CONST, operand, null);
+                    break;
+                case CompiledExpression.OP_LOAD:
+                    stack[sp++] = new Operand(LOAD, operand, null);
+                    break;
+                case CompiledExpression.OP_ARRAY_LENGTH:
+                    stack[sp++] = node((variables, evaluator) -> variables.arrayLength(operand));
+                    break;
+                case CompiledExpression.OP_CONST_LONG:
+                case CompiledExpression.OP_CONST_DOUBLE:
+                case CompiledExpression.OP_ARRAY_SUM:
+                    stack[sp++] = node((variables, evaluator) -> {
+                        throw new RuntimeException("Ожидается значение типа int");
+                    });
+                    break;
+                case CompiledExpression.OP_INDEX:
+                    stack[sp - 1] = node(index(operand, stack[sp - 1]));
+                    break;
+                case CompiledExpression.OP_NEG:
+                    stack[sp - 1] = node(negate(stack[sp - 1]));
+                    break;
+                case CompiledExpression.OP_ADD:
+                case CompiledExpression.OP_SUB:
+                case CompiledExpression.OP_MUL:
+                case CompiledExpression.OP_DIV:
+                case CompiledExpression.OP_MOD:
+                    sp--;
+                    stack[sp - 1] = node(binary(code[pc], stack[sp - 1], stack[sp]));
+                    break;
+                case CompiledExpression.OP_CACHED:
+                    break;
+                case CompiledExpression.OP_STORE_CACHE:
+                    stack[sp - 1] = node(cached(operand, closure(stack[sp - 1])));
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return sp == 1 ? closure(stack[0]) : null;
+    }
+
+    private static Operand node(IntClosure closure) {
+        return new Operand(NODE, 0, closure);
+    }
+
+    private static IntClosure closure(Operand operand) {
+        int value = operand.value;
+        switch (operand.kind) {
+            case CONST: return (variables, evaluator) -> value;
+            case LOAD: return (variables, evaluator) -> variables.getVariable(value);
+            default: return operand.node;
+        }
+    }
+
+    private static IntClosure index(int slot, Operand position) {
+        if (position.kind == CONST) {
+            int index = position.value;
+            return (variables, evaluator) -> variables.getElement(slot, index);
+        }
+        if (position.kind == LOAD) {
+            int indexSlot = position.value;
+            return (variables, evaluator) -> variables.getElement(slot, variables.getVariable(indexSlot));
+        }
+        IntClosure node = position.node;
+        return (variables, evaluator) -> variables.getElement(slot, node.evaluate(variables, evaluator));
+    }
+
+    private static IntClosure negate(Operand operand) {
+        if (operand.kind == LOAD) {
+            int slot = operand.value;
+            return (variables, evaluator) -> -variables.getVariable(slot);
+        }
+        IntClosure node = closure(operand);
+        return (variables, evaluator) -> -node.evaluate(variables, evaluator);
+    }
+
+    private static IntClosure cached(int register, IntClosure node) {
+        return (variables, evaluator) -> {
+            if (evaluator.isCached(register)) {
+                return evaluator.cachedValue(register);
+            }
+            int value = node.evaluate(variables, evaluator);
+            evaluator.storeCache(register, value);
+            return value;
+        };
+    }
+
+    private static IntClosure binary(int op, Operand left, Operand right) {
+        switch (op) {
+            case CompiledExpression.OP_ADD: return add(left, right);
+            case CompiledExpression.OP_SUB: return subtract(left, right);
+            case CompiledExpression.OP_MUL: return multiply(left, right);
+            default: return divide(op, left, right);
+        }
+    }
+
+    private static IntClosure add(Operand left, Operand right) {
+        int a = left.value;
+        int b = right.value;
+        if (left.kind == LOAD && right.kind == LOAD) {
+            return (variables, evaluator) -> variables.getVariable(a) + variables.getVariable(b);
+        }
+        if (left.kind == LOAD && right.kind == CONST) {
+            return (variables, evaluator) -> variables.getVariable(a) + b;
+        }
+        if (left.kind == CONST && right.kind == LOAD) {
+            return (variables, evaluator) -> a + variables.getVariable(b);
+        }
+        if (left.kind == NODE && right.kind == CONST) {
+            IntClosure node = left.node;
+            return (variables, evaluator) -> node.evaluate(variables, evaluator) + b;
+        }
+        if (left.kind == NODE && right.kind == LOAD) {
+            IntClosure node = left.node;
+            return (variables, evaluator) -> node.evaluate(variables, evaluator) + variables.getVariable(b);
+        }
+        IntClosure leftNode = closure(left);
+        IntClosure rightNode = closure(right);
+        return (variables, evaluator) -> leftNode.evaluate(variables, evaluator) + rightNode.evaluate(variables, evaluator);
+    }
+
+    private static IntClosure subtract(Operand left, Operand right) {
+        int a = left.value;
+        int b = right.value;
+        if (left.kind == LOAD && right.kind == LOAD) {
+            return (variables, evaluator) -> variables.getVariable(a) - variables.getVariable(b);
+        }
+        if (left.kind == LOAD && right.kind == CONST) {
+            return (variables, evaluator) -> variables.getVariable(a) - b;
+        }
+        if (left.kind == CONST && right.kind == LOAD) {
+            return (variables, evaluator) -> a - variables.getVariable(b);
+        }
+        if (left.kind == NODE && right.kind == CONST) {
+            IntClosure node = left.node;
+            return (variables, evaluator) -> node.evaluate(variables, evaluator) - b;
+        }
+        IntClosure leftNode = closure(left);
+        IntClosure rightNode = closure(right);
+        return (variables, evaluator) -> leftNode.evaluate(variables, evaluator) - rightNode.evaluate(variables, evaluator);
+    }
+
+    private static IntClosure multiply(Operand left, Operand right) {
+        int a = left.value;
+        int b = right.value;
+        if (left.kind == LOAD && right.kind == LOAD) {
+            return (variables, evaluator) -> variables.getVariable(a) * variables.getVariable(b);
+        }
+        if (left.kind == LOAD && right.kind == CONST) {
+            return (variables, evaluator) -> variables.getVariable(a) * b;
+        }
+        if (left.kind == CONST && right.kind == LOAD) {
+            return (variables, evaluator) -> a * variables.getVariable(b);
+        }
+        if (left.kind == NODE && right.kind == CONST) {
+            IntClosure node = left.node;
+            return (variables, evaluator) -> node.evaluate(variables, evaluator) * b;
+        }
+        IntClosure leftNode = closure(left);
+        IntClosure rightNode = closure(right);
+        return (variables, evaluator) -> leftNode.evaluate(variables, evaluator) * rightNode.evaluate(variables, evaluator);
+    }
+
+    private static IntClosure divide(int op, Operand left, Operand right) {
+        IntClosure leftNode = closure(left);
+        boolean modulo = op == CompiledExpression.OP_MOD;
+        if (right.kind == CONST && right.value != 0) {
+            int divisor = right.value;
+            if (modulo) {
+                return (variables, evaluator) -> leftNode.evaluate(variables, evaluator) % divisor;
+            }
+            return (variables, evaluator) -> leftNode.evaluate(variables, evaluator) / divisor;
+        }
+
+        IntClosure rightNode = closure(right);
+        if (modulo) {
+            return (variables, evaluator) -> {
+                int dividend = leftNode.evaluate(variables, evaluator);
+                int divisor = rightNode.evaluate(variables, evaluator);
+                if (divisor == 0) throw new RuntimeException("Деление на ноль при взятии остатка");
+                return dividend % divisor;
+            };
+        }
+        return (variables, evaluator) -> {
+            int dividend = leftNode.evaluate(variables, evaluator);
+            int divisor = rightNode.evaluate(variables, evaluator);
+            if (divisor == 0) throw new RuntimeException("Деление на ноль");
+            return dividend / divisor;
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.notscratch;
+
+public final class CompiledExpression {
+    static final int OP_CONST = 0;
+    static final int OP_LOAD = 1;
+    static final int OP_NEG = 2;
+    static final int OP_ADD = 3;
+    static final int OP_SUB = 4;
+    static final int OP_MUL = 5;
+    static final int OP_DIV = 6;
+    static final int OP_MOD = 7;
+    static final int OP_FAIL = 8;
+    static final int OP_CACHED = 9;
+    static final int OP_STORE_CACHE = 10;
+    static final int OP_CONST_LONG = 11;
+    static final int OP_CONST_DOUBLE = 12;
+    static final int OP_INDEX = 13;
+    static final int OP_ARRAY_LENGTH = 14;
+    static final int OP_ARRAY_SUM = 15;
+
+    private static final long[] NO_CONSTANTS = new long[0];
+
+    private final String source;
+    private final boolean empty;
+    final int[] code;
+    final String[] messages;
+    final int maxStack;
+    final long[] constants;
+    int typeState = -1;
+    int executions;
+    ClosureCompiler.IntClosure closure;
+    CompiledExpression unoptimized;
+
+    CompiledExpression(String source, int[] code, String[] messages, int maxStack) {
+        this(source, code, messages, maxStack, NO_CONSTANTS);
+    }
+
+    CompiledExpression(String source, int[] code, String[] messages, int maxStack, long[] constants) {
+        this.source = source;
+        this.empty = source == null || source.trim().isEmpty();
+        this.code = code;
+        this.messages = messages;
+        this.maxStack = maxStack;
+        this.constants = constants;
+    }
+
+    static boolean readsSlot(int op) {
+        return op == OP_LOAD || op == OP_INDEX || op == OP_ARRAY_LENGTH || op == OP_ARRAY_SUM;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+}
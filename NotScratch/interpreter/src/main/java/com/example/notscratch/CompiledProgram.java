@@ -0,0 +1,84 @@
+package com.example.notscratch;
+
+public final class CompiledProgram {
+    static final int OP_BLOCK = 0;
+    static final int OP_END_BLOCK = 1;
+    static final int OP_PRINT = 2;
+    static final int OP_FAIL = 3;
+    static final int OP_DECLARE = 4;
+    static final int OP_ASSIGN = 5;
+    static final int OP_ASSIGN_TRACE = 6;
+    static final int OP_EVAL = 7;
+    static final int OP_EVAL_TRACE = 8;
+    static final int OP_PRINT_ACC = 9;
+    static final int OP_TEST = 10;
+    static final int OP_PRINT_FLAG = 11;
+    static final int OP_JUMP = 12;
+    static final int OP_JUMP_FALSE = 13;
+    static final int OP_LOOP_ENTER = 14;
+    static final int OP_ITERATE = 15;
+    static final int OP_ITERATE_UNCOND = 16;
+    static final int OP_LOOP_EXIT = 17;
+    static final int OP_DECLARE_WIDE = 18;
+    static final int OP_NEW_ARRAY = 19;
+    static final int OP_STORE_ELEMENT = 20;
+    static final int OP_ARRAY_CALL = 21;
+    static final int OP_DEBUG = 22;
+    static final int OP_FOR_COUNTED = 23;
+    static final int OP_FOR_NEXT = 24;
+    static final int OP_ACCUMULATE = 25;
+
+    static final int[] OPERAND_COUNTS = { 2, 0, 1, 1, 1, 2, 4, 1, 3, 1, 3, 1, 1, 1, 3, 3, 2, 2, 2, 2, 4, 7, 2, 10, 5, 6 };
+
+    static final int TEST_TRUE = 0;
+    static final int TEST_NONZERO = 1;
+    static final int TEST_GT = 2;
+    static final int TEST_LT = 3;
+    static final int TEST_GE = 4;
+    static final int TEST_LE = 5;
+    static final int TEST_EQ = 6;
+    static final int TEST_NE = 7;
+
+    static final int ARRAY_FILL = 0;
+    static final int ARRAY_SORT = 1;
+    static final int ARRAY_COPY = 2;
+
+    final int[] code;
+    final CompiledExpression[] expressions;
+    final String[] strings;
+    final BlockType[] blockTypes;
+    final long[] blockIds;
+    final int[] blockVersions;
+    final int[][] blockInputs;
+    final int[][] blockOutputs;
+    final int[] blockStarts;
+    final int[] blockEnds;
+    final int loopCount;
+    final int cacheRegisterCount;
+
+    CompiledProgram(int[] code, CompiledExpression[] expressions, String[] strings,
+                    BlockType[] blockTypes, long[] blockIds, int[] blockVersions, int[][] blockInputs,
+                    int[][] blockOutputs, int[] blockStarts, int[] blockEnds, int loopCount,
+                    int cacheRegisterCount) {
+        this.code = code;
+        this.expressions = expressions;
+        this.strings = strings;
+        this.blockTypes = blockTypes;
+        this.blockIds = blockIds;
+        this.blockVersions = blockVersions;
+        this.blockInputs = blockInputs;
+        this.blockOutputs = blockOutputs;
+        this.blockStarts = blockStarts;
+        this.blockEnds = blockEnds;
+        this.loopCount = loopCount;
+        this.cacheRegisterCount = cacheRegisterCount;
+    }
+
+    public int getBlockCount() {
+        return blockTypes.length;
+    }
+
+    public int getCodeLength() {
+        return code.length;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.notscratch;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class Debugger {
+    public static final long EVERY_ITERATION = 0;
+
+    private static final int STEP_NONE = 0;
+    private static final int STEP_INTO = 1;
+    private static final int STEP_OVER = 2;
+
+    public interface Listener {
+        void onPaused(Pause pause);
+        void onResumed();
+    }
+
+    public static final class Pause {
+        private final int block;
+        private final BlockType blockType;
+        private final int depth;
+        private final long iteration;
+        private final Map<String, String> variables;
+        private final Map<String, String> watches;
+
+        Pause(int block, BlockType blockType, int depth, long iteration,
+              Map<String, String> variables, Map<String, String> watches) {
+            this.block = block;
+            this.blockType = blockType;
+            this.depth = depth;
+            this.iteration = iteration;
+            this.variables = Collections.unmodifiableMap(variables);
+            this.watches = Collections.unmodifiableMap(watches);
+        }
+
+        public int getBlock() {
+            return block;
+        }
+
+        public BlockType getBlockType() {
+            return blockType;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getIteration() {
+            return iteration;
+        }
+
+        public Map<String, String> getVariables() {
+            return variables;
+        }
+
+        public Map<String, String> getWatches() {
+            return watches;
+        }
+    }
+
+    private final BitSet blockBreakpoints = new BitSet();
+    private final Map<Integer, Long> iterationBreakpoints = new HashMap<>();
+    private final List<String> watches = new CopyOnWriteArrayList<>();
+    private volatile Listener listener;
+    private volatile boolean pauseRequested;
+    private int stepMode = STEP_NONE;
+    private int stepDepth;
+    private boolean paused;
+    private boolean resumed;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void setBlockBreakpoint(int block) {
+        blockBreakpoints.set(block);
+    }
+
+    public synchronized void setIterationBreakpoint(int block, long iteration) {
+        iterationBreakpoints.put(block, iteration);
+    }
+
+    public synchronized void clearBreakpoints() {
+        blockBreakpoints.clear();
+        iterationBreakpoints.clear();
+    }
+
+    public void addWatch(String expression) {
+        String trimmed = expression.trim();
+        if (!trimmed.isEmpty() && !watches.contains(trimmed)) {
+            watches.add(trimmed);
+        }
+    }
+
+    public void removeWatch(String expression) {
+        watches.remove(expression);
+    }
+
+    public List<String> getWatches() {
+        return Collections.unmodifiableList(watches);
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    public void requestPause() {
+        pauseRequested = true;
+    }
+
+    public synchronized void resume() {
+        release(STEP_NONE);
+    }
+
+    public synchronized void stepInto() {
+        release(STEP_INTO);
+    }
+
+    public synchronized void stepOver() {
+        release(STEP_OVER);
+    }
+
+    synchronized void reset() {
+        pauseRequested = false;
+        stepMode = STEP_NONE;
+        paused = false;
+    }
+
+    synchronized boolean shouldPause(int block, int depth, long iteration) {
+        if (pauseRequested || stepMode == STEP_INTO || (stepMode == STEP_OVER && depth <= stepDepth)) {
+            return true;
+        }
+        if (depth == 0) {
+            return blockBreakpoints.get(block);
+        }
+        Long breakIteration = iterationBreakpoints.get(block);
+        return breakIteration != null &&
+                (breakIteration == EVERY_ITERATION || (depth == 1 && breakIteration == iteration));
+    }
+
+    void pause(Pause pause) {
+        synchronized (this) {
+            pauseRequested = false;
+            stepMode = STEP_NONE;
+            stepDepth = pause.depth;
+            paused = true;
+            resumed = false;
+        }
+
+        Listener current = listener;
+        if (current != null) {
+            current.onPaused(pause);
+        }
+
+        synchronized (this) {
+            try {
+                while (!resumed) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExecutionCancelledException();
+            } finally {
+                paused = false;
+            }
+        }
+
+        current = listener;
+        if (current != null) {
+            current.onResumed();
+        }
+    }
+
+    private void release(int mode) {
+        if (!paused) {
+            return;
+        }
+        stepMode = mode;
+        resumed = true;
+        notifyAll();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.notscratch;
+
+public class ExecutionAbortedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ExecutionAbortedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.notscratch;
+
+public final class ExecutionBudget {
+    public static final long DEFAULT_MAX_INSTRUCTIONS = 50_000_000L;
+    public static final long DEFAULT_MAX_MILLIS = 30_000L;
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    private final long maxInstructions;
+    private final long maxMillis;
+    private final long maxMemoryBytes;
+
+    public ExecutionBudget(long maxInstructions, long maxMillis, long maxMemoryBytes) {
+        if (maxInstructions <= 0 || maxMillis <= 0 || maxMemoryBytes <= 0) {
+            throw new IllegalArgumentException("Лимиты выполнения должны быть положительными");
+        }
+        this.maxInstructions = maxInstructions;
+        this.maxMillis = maxMillis;
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    public static ExecutionBudget defaults() {
+        return new ExecutionBudget(DEFAULT_MAX_INSTRUCTIONS, DEFAULT_MAX_MILLIS, DEFAULT_MAX_MEMORY_BYTES);
+    }
+
+    public long getMaxInstructions() {
+        return maxInstructions;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public long getMaxMemoryBytes() {
+        return maxMemoryBytes;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.notscratch;
+
+public class ExecutionCancelledException extends ExecutionAbortedException {
+    private static final long serialVersionUID = 1L;
+
+    public ExecutionCancelledException() {
+        super("Выполнение остановлено пользователем");
+    }
+}
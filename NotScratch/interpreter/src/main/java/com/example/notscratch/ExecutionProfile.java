@@ -0,0 +1,101 @@
+package com.example.notscratch;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+public final class ExecutionProfile {
+    public enum SortKey {
+        TIME,
+        INSTRUCTIONS,
+        EVALUATIONS
+    }
+
+    private final BlockType[] blockTypes;
+    private final long[] nanos;
+    private final long[] instructions;
+    private final long[] evaluations;
+    private final long[] iterations;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    ExecutionProfile(BlockType[] blockTypes, long[] nanos, long[] instructions,
+                     long[] evaluations, long[] iterations) {
+        this.blockTypes = blockTypes;
+        this.nanos = nanos;
+        this.instructions = instructions;
+        this.evaluations = evaluations;
+        this.iterations = iterations;
+
+        long total = 0;
+        long max = 0;
+        for (long value : nanos) {
+            total += value;
+            max = Math.max(max, value);
+        }
+        this.totalNanos = total;
+        this.maxNanos = max;
+    }
+
+    public int getBlockCount() {
+        return blockTypes.length;
+    }
+
+    public BlockType getBlockType(int block) {
+        return blockTypes[block];
+    }
+
+    public long getNanos(int block) {
+        return nanos[block];
+    }
+
+    public long getInstructions(int block) {
+        return instructions[block];
+    }
+
+    public long getEvaluations(int block) {
+        return evaluations[block];
+    }
+
+    public long getIterations(int block) {
+        return iterations[block];
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public boolean isExecuted(int block) {
+        return instructions[block] > 0;
+    }
+
+    public float getHeat(int block) {
+        return maxNanos > 0 ? (float) nanos[block] / maxNanos : 0f;
+    }
+
+    public int getTimeShare(int block) {
+        return totalNanos > 0 ? (int) (nanos[block] * 100 / totalNanos) : 0;
+    }
+
+    public int[] getHottestBlocks(SortKey key) {
+        Integer[] order = new Integer[blockTypes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        long[] values = key == SortKey.TIME ? nanos : key == SortKey.INSTRUCTIONS ? instructions : evaluations;
+        Arrays.sort(order, Comparator.comparingLong((Integer block) -> values[block]).reversed());
+
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    public static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000L) {
+            return String.format(Locale.getDefault(), "%.1f мс", nanos / 1e6);
+        }
+        return String.format(Locale.getDefault(), "%d мкс", nanos / 1000);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.notscratch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public final class ExecutionResult {
+    public enum Status {
+        COMPLETED("выполнена"),
+        STOPPED("остановлена"),
+        FAILED("ошибка");
+
+        private final String displayName;
+
+        Status(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final Status status;
+    private final String message;
+    private final String output;
+    private final Map<String, Object> variables;
+    private final List<String> errors;
+    private final long elapsedNanos;
+    private final long instructions;
+    private final ExecutionProfile profile;
+
+    ExecutionResult(Status status, String message, String output, Map<String, Object> variables,
+                    List<String> errors, long elapsedNanos, long instructions, ExecutionProfile profile) {
+        this.status = status;
+        this.message = message;
+        this.output = output;
+        this.variables = Collections.unmodifiableMap(variables);
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedNanos = elapsedNanos;
+        this.instructions = instructions;
+        this.profile = profile;
+    }
+
+    static ExecutionResult failed(String message, long elapsedNanos) {
+        return new ExecutionResult(Status.FAILED, message, "", Collections.emptyMap(),
+                Collections.emptyList(), elapsedNanos, 0, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public Map<String, Object> getVariables() {
+        return variables;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getInstructions() {
+        return instructions;
+    }
+
+    public ExecutionProfile getProfile() {
+        return profile;
+    }
+}
@@ -0,0 +1,767 @@
+package com.example.notscratch;
+
+import com.example.notscratch.VariableManager;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ExpressionEvaluator {
+    private static final int CACHE_SIZE = 256;
+    private static final int OPERAND = -1;
+    private static final int INDEX = -2;
+    private static final int FUNCTION = -3;
+    private static final int KIND_MASK = 3;
+    private static final int UNIFORM = 4;
+    private static final int EPOCH_SHIFT = 3;
+    private static final int PROMOTION_THRESHOLD = 64;
+
+    private final VariableManager variableManager;
+    private final Map<String, CompiledExpression> cache =
+            new LinkedHashMap<String, CompiledExpression>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+    private int[] stack = new int[16];
+    private long[] wideStack = new long[16];
+    private int[] kindStack = new int[16];
+    private int[] cacheValues = new int[0];
+    private boolean[] cacheValid = new boolean[0];
+
+    public ExpressionEvaluator(VariableManager variableManager) {
+        this.variableManager = variableManager;
+    }
+
+    public int evaluate(String expression) {
+        if (expression == null) {
+            throw new RuntimeException("Пустое выражение");
+        }
+        return evaluate(compile(expression));
+    }
+
+    public int evaluate(CompiledExpression expression) {
+        if (expression.isEmpty()) {
+            throw new RuntimeException("Пустое выражение");
+        }
+
+        ClosureCompiler.IntClosure closure = expression.closure;
+        if (closure == null && expression.executions++ == PROMOTION_THRESHOLD) {
+            closure = ClosureCompiler.compile(expression);
+            expression.closure = closure;
+        }
+
+        try {
+            return closure != null ? closure.evaluate(variableManager, this) : execute(expression);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка в выражении '" + expression.getSource() + "': " + e.getMessage());
+        }
+    }
+
+    int typeOf(CompiledExpression expression) {
+        return typeState(expression) & KIND_MASK;
+    }
+
+    long evaluateLong(CompiledExpression expression) {
+        int state = typeState(expression);
+        if ((state & KIND_MASK) == VariableManager.INT) {
+            return evaluate(expression);
+        }
+        expression = unoptimized(expression);
+        state = typeState(expression);
+
+        try {
+            if ((state & KIND_MASK) == VariableManager.DOUBLE) {
+                throw new RuntimeException("Ожидается значение типа long, а не double");
+            }
+            return (state & UNIFORM) != 0 ? executeLong(expression) : executeMixed(expression);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка в выражении '" + expression.getSource() + "': " + e.getMessage());
+        }
+    }
+
+    double evaluateDouble(CompiledExpression expression) {
+        int state = typeState(expression);
+        if ((state & KIND_MASK) != VariableManager.DOUBLE) {
+            return evaluateLong(expression);
+        }
+        expression = unoptimized(expression);
+        state = typeState(expression);
+
+        try {
+            return (state & UNIFORM) != 0 ? executeDouble(expression) :
+                    Double.longBitsToDouble(executeMixed(expression));
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка в выражении '" + expression.getSource() + "': " + e.getMessage());
+        }
+    }
+
+    private CompiledExpression unoptimized(CompiledExpression expression) {
+        CompiledExpression unoptimized = expression.unoptimized;
+        if (unoptimized == null) {
+            unoptimized = compile(expression.getSource());
+            if (Arrays.equals(unoptimized.code, expression.code)) {
+                unoptimized = expression;
+            }
+            expression.unoptimized = unoptimized;
+        }
+        return unoptimized;
+    }
+
+    public void resetCache(int registers) {
+        if (cacheValues.length < registers) {
+            cacheValues = new int[registers];
+            cacheValid = new boolean[registers];
+        } else {
+            Arrays.fill(cacheValid, false);
+        }
+    }
+
+    public void invalidateCache(int fromRegister, int toRegister) {
+        for (int i = fromRegister; i < toRegister; i++) {
+            cacheValid[i] = false;
+        }
+    }
+
+    boolean isCached(int register) {
+        return cacheValid[register];
+    }
+
+    int cachedValue(int register) {
+        return cacheValues[register];
+    }
+
+    void storeCache(int register, int value) {
+        cacheValues[register] = value;
+        cacheValid[register] = true;
+    }
+
+    public CompiledExpression compile(String expression) {
+        CompiledExpression compiled = cache.get(expression);
+        if (compiled == null) {
+            compiled = compileUncached(expression);
+            cache.put(expression, compiled);
+        }
+        return compiled;
+    }
+
+    CompiledExpression compileUncached(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            return new CompiledExpression(expression, new int[0], new String[0], 0);
+        }
+
+        char[] chars = expression.toCharArray();
+        int length = chars.length;
+        int[] postfixKind = new int[length];
+        int[] postfixStart = new int[length];
+        int[] postfixEnd = new int[length];
+        int postfixSize = 0;
+        char[] operators = new char[length];
+        int[] operatorSlots = new int[length];
+        int operatorCount = 0;
+        boolean unary = true;
+
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                boolean number = Character.isDigit(c);
+                while (i < length && (Character.isLetterOrDigit(chars[i]) || chars[i] == '_' ||
+                        (number && chars[i] == '.'))) {
+                    i++;
+                }
+
+                int next = skipWhitespace(chars, i);
+                if (!number && next < length && chars[next] == '[') {
+                    operators[operatorCount] = '[';
+                    operatorSlots[operatorCount++] = variableManager.getSymbols().slotOf(expression.substring(start, i));
+                    i = next;
+                    unary = true;
+                    continue;
+                }
+                int function = number || next >= length || chars[next] != '(' ? -1 :
+                        arrayFunction(expression.substring(start, i));
+                if (function >= 0) {
+                    int argumentStart = skipWhitespace(chars, next + 1);
+                    int argumentEnd = argumentStart;
+                    while (argumentEnd < length && (Character.isLetterOrDigit(chars[argumentEnd]) ||
+                            chars[argumentEnd] == '_')) {
+                        argumentEnd++;
+                    }
+                    int close = skipWhitespace(chars, argumentEnd);
+                    if (argumentEnd == argumentStart || !Character.isLetter(chars[argumentStart]) ||
+                            close >= length || chars[close] != ')') {
+                        return failed(expression, "Ожидается имя массива: " + expression.substring(start, i) + "(массив)");
+                    }
+                    postfixKind[postfixSize] = FUNCTION;
+                    postfixStart[postfixSize] = variableManager.getSymbols().slotOf(
+                            expression.substring(argumentStart, argumentEnd));
+                    postfixEnd[postfixSize++] = function;
+                    i = close;
+                    unary = false;
+                    continue;
+                }
+
+                postfixKind[postfixSize] = OPERAND;
+                postfixStart[postfixSize] = start;
+                postfixEnd[postfixSize++] = i;
+                i--;
+                unary = false;
+            } else if (c == '(') {
+                operators[operatorCount++] = c;
+                unary = true;
+            } else if (c == ')') {
+                while (operatorCount > 0 && operators[operatorCount - 1] != '(' && operators[operatorCount - 1] != '[') {
+                    postfixKind[postfixSize++] = operators[--operatorCount];
+                }
+                if (operatorCount == 0 || operators[operatorCount - 1] != '(') {
+                    return failed(expression, "Непарная закрывающая скобка");
+                }
+                operatorCount--;
+                unary = false;
+            } else if (c == ']') {
+                while (operatorCount > 0 && operators[operatorCount - 1] != '(' && operators[operatorCount - 1] != '[') {
+                    postfixKind[postfixSize++] = operators[--operatorCount];
+                }
+                if (operatorCount == 0 || operators[operatorCount - 1] != '[') {
+                    return failed(expression, "Непарная квадратная скобка");
+                }
+                operatorCount--;
+                postfixKind[postfixSize] = INDEX;
+                postfixStart[postfixSize++] = operatorSlots[operatorCount];
+                unary = false;
+            } else {
+                if (unary && c == '-') {
+                    operators[operatorCount++] = '~';
+                } else {
+                    while (operatorCount > 0 && precedence(c) <= precedence(operators[operatorCount - 1])) {
+                        postfixKind[postfixSize++] = operators[--operatorCount];
+                    }
+                    operators[operatorCount++] = c;
+                }
+                unary = true;
+            }
+        }
+
+        while (operatorCount > 0) {
+            if (operators[operatorCount - 1] == '(') {
+                return failed(expression, "Непарная открывающая скобка");
+            }
+            if (operators[operatorCount - 1] == '[') {
+                return failed(expression, "Непарная квадратная скобка");
+            }
+            postfixKind[postfixSize++] = operators[--operatorCount];
+        }
+
+        int[] code = new int[postfixSize * 2 + 2];
+        long[] constants = new long[0];
+        int constantCount = 0;
+        int size = 0;
+        int depth = 0;
+        int maxStack = 0;
+
+        for (int t = 0; t < postfixSize; t++) {
+            String failure = null;
+            int kind = postfixKind[t];
+
+            if (kind == OPERAND) {
+                int start = postfixStart[t];
+                int end = postfixEnd[t];
+                boolean literal = Character.isDigit(chars[start]);
+                char suffix = chars[end - 1];
+                int dot = expression.indexOf('.', start);
+                if (literal && (suffix == 'L' || suffix == 'l' || dot >= 0 && dot < end)) {
+                    String token = expression.substring(start, end);
+                    int op = suffix == 'L' || suffix == 'l' ?
+                            CompiledExpression.OP_CONST_LONG : CompiledExpression.OP_CONST_DOUBLE;
+                    try {
+                        long value = op == CompiledExpression.OP_CONST_LONG ?
+                                Long.parseLong(token.substring(0, token.length() - 1)) :
+                                Double.doubleToRawLongBits(Double.parseDouble(token));
+                        if (constantCount == constants.length) {
+                            constants = Arrays.copyOf(constants, Math.max(4, constantCount * 2));
+                        }
+                        constants[constantCount] = value;
+                        code[size++] = op;
+                        code[size++] = constantCount++;
+                        depth++;
+                    } catch (NumberFormatException e) {
+                        failure = "Некорректное число: " + token;
+                    }
+                } else if (literal) {
+                    long value = 0;
+                    for (int i = start; i < end && value <= Integer.MAX_VALUE; i++) {
+                        int digit = Character.digit(chars[i], 10);
+                        value = digit < 0 ? Long.MAX_VALUE : value * 10 + digit;
+                    }
+                    if (value > Integer.MAX_VALUE) {
+                        failure = numberFormatMessage(expression.substring(start, end));
+                    } else {
+                        code[size++] = CompiledExpression.OP_CONST;
+                        code[size++] = (int) value;
+                        depth++;
+                    }
+                } else {
+                    code[size++] = CompiledExpression.OP_LOAD;
+                    code[size++] = variableManager.getSymbols().slotOf(expression.substring(start, end));
+                    depth++;
+                }
+            } else if (kind == INDEX) {
+                if (depth < 1) {
+                    failure = "Не указан индекс массива";
+                } else {
+                    code[size++] = CompiledExpression.OP_INDEX;
+                    code[size++] = postfixStart[t];
+                }
+            } else if (kind == FUNCTION) {
+                code[size++] = postfixEnd[t];
+                code[size++] = postfixStart[t];
+                depth++;
+            } else {
+                char op = (char) kind;
+                if (op == '~') {
+                    if (depth < 1) {
+                        failure = "Недостаточно операндов для унарного оператора";
+                    } else {
+                        code[size++] = CompiledExpression.OP_NEG;
+                        code[size++] = 0;
+                    }
+                } else if (depth < 2) {
+                    failure = "Недостаточно операндов для оператора " + op;
+                } else {
+                    int opcode = binaryOpcode(op);
+                    if (opcode < 0) {
+                        failure = "Неизвестный оператор: " + op;
+                    } else {
+                        code[size++] = opcode;
+                        code[size++] = 0;
+                        depth--;
+                    }
+                }
+            }
+
+            if (failure != null) {
+                return failedAfter(expression, code, size, failure, maxStack,
+                        Arrays.copyOf(constants, constantCount));
+            }
+            maxStack = Math.max(maxStack, depth);
+        }
+
+        if (depth != 1) {
+            return failedAfter(expression, code, size, "Некорректное выражение", maxStack,
+                    Arrays.copyOf(constants, constantCount));
+        }
+
+        return new CompiledExpression(expression, Arrays.copyOf(code, size), new String[0], maxStack,
+                Arrays.copyOf(constants, constantCount));
+    }
+
+    private CompiledExpression failed(String expression, String message) {
+        return failedAfter(expression, new int[2], 0, message, 0, new long[0]);
+    }
+
+    private CompiledExpression failedAfter(String expression, int[] code, int size, String message, int maxStack,
+                                           long[] constants) {
+        int[] result = Arrays.copyOf(code, size + 2);
+        result[size] = CompiledExpression.OP_FAIL;
+        result[size + 1] = 0;
+        return new CompiledExpression(expression, result, new String[] { message }, maxStack, constants);
+    }
+
+    private static int skipWhitespace(char[] chars, int index) {
+        while (index < chars.length && Character.isWhitespace(chars[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int arrayFunction(String name) {
+        switch (name) {
+            case "length": return CompiledExpression.OP_ARRAY_LENGTH;
+            case "sum": return CompiledExpression.OP_ARRAY_SUM;
+            default: return -1;
+        }
+    }
+
+    private String numberFormatMessage(String token) {
+        try {
+            Integer.parseInt(token);
+            return "Некорректное число: " + token;
+        } catch (NumberFormatException e) {
+            return e.getMessage();
+        }
+    }
+
+    private int execute(CompiledExpression expression) {
+        int[] code = expression.code;
+        if (stack.length < expression.maxStack) {
+            stack = new int[Math.max(stack.length * 2, expression.maxStack)];
+        }
+        int[] stack = this.stack;
+        int sp = 0;
+
+        for (int pc = 0; pc < code.length; pc += 2) {
+            int operand = code[pc + 1];
+            switch (code[pc]) {
+                case CompiledExpression.OP_CONST:
+                    stack[sp++] = operand;
+                    break;
+                case CompiledExpression.OP_LOAD:
+                    stack[sp++] = variableManager.getVariable(operand);
+                    break;
+                case CompiledExpression.OP_NEG:
+                    stack[sp - 1] = -stack[sp - 1];
+                    break;
+                case CompiledExpression.OP_ADD:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] + stack[sp];
+                    break;
+                case CompiledExpression.OP_SUB:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] - stack[sp];
+                    break;
+                case CompiledExpression.OP_MUL:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] * stack[sp];
+                    break;
+                case CompiledExpression.OP_DIV:
+                    sp--;
+                    if (stack[sp] == 0) throw new RuntimeException("Деление на ноль");
+                    stack[sp - 1] = stack[sp - 1] / stack[sp];
+                    break;
+                case CompiledExpression.OP_MOD:
+                    sp--;
+                    if (stack[sp] == 0) throw new RuntimeException("Деление на ноль при взятии остатка");
+                    stack[sp - 1] = stack[sp - 1] % stack[sp];
+                    break;
+                case CompiledExpression.OP_CACHED: {
+                    int register = operand & 0xFFFF;
+                    if (cacheValid[register]) {
+                        stack[sp++] = cacheValues[register];
+                        pc += (operand >>> 16) - 2;
+                    }
+                    break;
+                }
+                case CompiledExpression.OP_STORE_CACHE:
+                    cacheValues[operand] = stack[sp - 1];
+                    cacheValid[operand] = true;
+                    break;
+                case CompiledExpression.OP_INDEX:
+                    stack[sp - 1] = variableManager.getElement(operand, stack[sp - 1]);
+                    break;
+                case CompiledExpression.OP_ARRAY_LENGTH:
+                    stack[sp++] = variableManager.arrayLength(operand);
+                    break;
+                case CompiledExpression.OP_CONST_LONG:
+                case CompiledExpression.OP_CONST_DOUBLE:
+                case CompiledExpression.OP_ARRAY_SUM:
+                    throw new RuntimeException("Ожидается значение типа int");
+                case CompiledExpression.OP_FAIL:
+                    throw new RuntimeException(expression.messages[operand]);
+            }
+        }
+
+        return stack[0];
+    }
+
+    private int typeState(CompiledExpression expression) {
+        int state = expression.typeState;
+        int epoch = variableManager.getTypeEpoch();
+        if (state >>> EPOCH_SHIFT != epoch) {
+            state = inferType(expression, epoch);
+            expression.typeState = state;
+        }
+        return state;
+    }
+
+    private int inferType(CompiledExpression expression, int epoch) {
+        int[] code = expression.code;
+        int[] kinds = kindStack(expression.maxStack);
+        int sp = 0;
+        int widest = VariableManager.INT;
+        int narrowestOp = VariableManager.DOUBLE;
+
+        for (int pc = 0; pc < code.length; pc += 2) {
+            switch (code[pc]) {
+                case CompiledExpression.OP_CONST:
+                    kinds[sp++] = VariableManager.INT;
+                    break;
+                case CompiledExpression.OP_CONST_LONG:
+                    kinds[sp++] = VariableManager.LONG;
+                    break;
+                case CompiledExpression.OP_CONST_DOUBLE:
+                    kinds[sp++] = VariableManager.DOUBLE;
+                    break;
+                case CompiledExpression.OP_LOAD:
+                    kinds[sp++] = variableManager.scalarKindOf(code[pc + 1]);
+                    break;
+                case CompiledExpression.OP_ARRAY_LENGTH:
+                    kinds[sp++] = VariableManager.INT;
+                    break;
+                case CompiledExpression.OP_ARRAY_SUM:
+                    kinds[sp++] = VariableManager.LONG;
+                    break;
+                case CompiledExpression.OP_INDEX:
+                    kinds[sp - 1] = VariableManager.INT;
+                    narrowestOp = VariableManager.INT;
+                    break;
+                case CompiledExpression.OP_NEG:
+                    narrowestOp = Math.min(narrowestOp, kinds[sp - 1]);
+                    break;
+                case CompiledExpression.OP_ADD:
+                case CompiledExpression.OP_SUB:
+                case CompiledExpression.OP_MUL:
+                case CompiledExpression.OP_DIV:
+                case CompiledExpression.OP_MOD:
+                    sp--;
+                    kinds[sp - 1] = Math.max(kinds[sp - 1], kinds[sp]);
+                    narrowestOp = Math.min(narrowestOp, kinds[sp - 1]);
+                    break;
+                case CompiledExpression.OP_FAIL:
+                    return epoch << EPOCH_SHIFT | widest;
+            }
+            if (sp > 0) {
+                widest = Math.max(widest, kinds[sp - 1]);
+            }
+        }
+
+        int kind = sp > 0 ? kinds[sp - 1] : VariableManager.INT;
+        return epoch << EPOCH_SHIFT | (narrowestOp >= kind ? UNIFORM : 0) | kind;
+    }
+
+    private long executeLong(CompiledExpression expression) {
+        int[] code = expression.code;
+        long[] stack = wideStack(expression.maxStack);
+        int sp = 0;
+
+        for (int pc = 0; pc < code.length; pc += 2) {
+            int operand = code[pc + 1];
+            switch (code[pc]) {
+                case CompiledExpression.OP_CONST:
+                    stack[sp++] = operand;
+                    break;
+                case CompiledExpression.OP_CONST_LONG:
+                    stack[sp++] = expression.constants[operand];
+                    break;
+                case CompiledExpression.OP_LOAD:
+                    stack[sp++] = variableManager.getLong(operand);
+                    break;
+                case CompiledExpression.OP_ARRAY_LENGTH:
+                    stack[sp++] = variableManager.arrayLength(operand);
+                    break;
+                case CompiledExpression.OP_ARRAY_SUM:
+                    stack[sp++] = variableManager.sumArray(operand);
+                    break;
+                case CompiledExpression.OP_NEG:
+                    stack[sp - 1] = -stack[sp - 1];
+                    break;
+                case CompiledExpression.OP_ADD:
+                case CompiledExpression.OP_SUB:
+                case CompiledExpression.OP_MUL:
+                case CompiledExpression.OP_DIV:
+                case CompiledExpression.OP_MOD:
+                    sp--;
+                    stack[sp - 1] = applyLong(code[pc], stack[sp - 1], stack[sp]);
+                    break;
+                case CompiledExpression.OP_FAIL:
+                    throw new RuntimeException(expression.messages[operand]);
+            }
+        }
+
+        return stack[0];
+    }
+
+    private double executeDouble(CompiledExpression expression) {
+        int[] code = expression.code;
+        long[] bits = wideStack(expression.maxStack);
+        int sp = 0;
+
+        for (int pc = 0; pc < code.length; pc += 2) {
+            int operand = code[pc + 1];
+            switch (code[pc]) {
+                case CompiledExpression.OP_CONST:
+                    bits[sp++] = Double.doubleToRawLongBits(operand);
+                    break;
+                case CompiledExpression.OP_CONST_LONG:
+                    bits[sp++] = Double.doubleToRawLongBits(expression.constants[operand]);
+                    break;
+                case CompiledExpression.OP_CONST_DOUBLE:
+                    bits[sp++] = expression.constants[operand];
+                    break;
+                case CompiledExpression.OP_LOAD:
+                    bits[sp++] = Double.doubleToRawLongBits(variableManager.getDouble(operand));
+                    break;
+                case CompiledExpression.OP_ARRAY_LENGTH:
+                    bits[sp++] = Double.doubleToRawLongBits(variableManager.arrayLength(operand));
+                    break;
+                case CompiledExpression.OP_ARRAY_SUM:
+                    bits[sp++] = Double.doubleToRawLongBits(variableManager.sumArray(operand));
+                    break;
+                case CompiledExpression.OP_NEG:
+                    bits[sp - 1] ^= Long.MIN_VALUE;
+                    break;
+                case CompiledExpression.OP_ADD:
+                case CompiledExpression.OP_SUB:
+                case CompiledExpression.OP_MUL:
+                case CompiledExpression.OP_DIV:
+                case CompiledExpression.OP_MOD:
+                    sp--;
+                    bits[sp - 1] = Double.doubleToRawLongBits(applyDouble(code[pc],
+                            Double.longBitsToDouble(bits[sp - 1]), Double.longBitsToDouble(bits[sp])));
+                    break;
+                case CompiledExpression.OP_FAIL:
+                    throw new RuntimeException(expression.messages[operand]);
+            }
+        }
+
+        return Double.longBitsToDouble(bits[0]);
+    }
+
+    private long executeMixed(CompiledExpression expression) {
+        int[] code = expression.code;
+        long[] values = wideStack(expression.maxStack);
+        int[] kinds = kindStack(expression.maxStack);
+        int sp = 0;
+
+        for (int pc = 0; pc < code.length; pc += 2) {
+            int operand = code[pc + 1];
+            switch (code[pc]) {
+                case CompiledExpression.OP_CONST:
+                    kinds[sp] = VariableManager.INT;
+                    values[sp++] = operand;
+                    break;
+                case CompiledExpression.OP_CONST_LONG:
+                    kinds[sp] = VariableManager.LONG;
+                    values[sp++] = expression.constants[operand];
+                    break;
+                case CompiledExpression.OP_CONST_DOUBLE:
+                    kinds[sp] = VariableManager.DOUBLE;
+                    values[sp++] = expression.constants[operand];
+                    break;
+                case CompiledExpression.OP_ARRAY_LENGTH:
+                    kinds[sp] = VariableManager.INT;
+                    values[sp++] = variableManager.arrayLength(operand);
+                    break;
+                case CompiledExpression.OP_ARRAY_SUM:
+                    kinds[sp] = VariableManager.LONG;
+                    values[sp++] = variableManager.sumArray(operand);
+                    break;
+                case CompiledExpression.OP_INDEX:
+                    if (kinds[sp - 1] != VariableManager.INT) {
+                        throw new RuntimeException("Индекс массива должен иметь тип int");
+                    }
+                    values[sp - 1] = variableManager.getElement(operand, (int) values[sp - 1]);
+                    break;
+                case CompiledExpression.OP_LOAD: {
+                    int kind = variableManager.scalarKindOf(operand);
+                    kinds[sp] = kind;
+                    values[sp++] = kind == VariableManager.DOUBLE ?
+                            Double.doubleToRawLongBits(variableManager.getDouble(operand)) :
+                            variableManager.getLong(operand);
+                    break;
+                }
+                case CompiledExpression.OP_NEG:
+                    if (kinds[sp - 1] == VariableManager.DOUBLE) {
+                        values[sp - 1] ^= Long.MIN_VALUE;
+                    } else if (kinds[sp - 1] == VariableManager.INT) {
+                        values[sp - 1] = -(int) values[sp - 1];
+                    } else {
+                        values[sp - 1] = -values[sp - 1];
+                    }
+                    break;
+                case CompiledExpression.OP_ADD:
+                case CompiledExpression.OP_SUB:
+                case CompiledExpression.OP_MUL:
+                case CompiledExpression.OP_DIV:
+                case CompiledExpression.OP_MOD: {
+                    sp--;
+                    int kind = Math.max(kinds[sp - 1], kinds[sp]);
+                    if (kind == VariableManager.DOUBLE) {
+                        values[sp - 1] = Double.doubleToRawLongBits(applyDouble(code[pc],
+                                toDouble(values[sp - 1], kinds[sp - 1]), toDouble(values[sp], kinds[sp])));
+                    } else if (kind == VariableManager.LONG) {
+                        values[sp - 1] = applyLong(code[pc], values[sp - 1], values[sp]);
+                    } else {
+                        values[sp - 1] = (int) applyLong(code[pc], values[sp - 1], values[sp]);
+                    }
+                    kinds[sp - 1] = kind;
+                    break;
+                }
+                case CompiledExpression.OP_FAIL:
+                    throw new RuntimeException(expression.messages[operand]);
+            }
+        }
+
+        return values[0];
+    }
+
+    private static double toDouble(long value, int kind) {
+        return kind == VariableManager.DOUBLE ? Double.longBitsToDouble(value) : value;
+    }
+
+    private static long applyLong(int op, long left, long right) {
+        switch (op) {
+            case CompiledExpression.OP_ADD: return left + right;
+            case CompiledExpression.OP_SUB: return left - right;
+            case CompiledExpression.OP_MUL: return left * right;
+            case CompiledExpression.OP_DIV:
+                if (right == 0) throw new RuntimeException("Деление на ноль");
+                return left / right;
+            default:
+                if (right == 0) throw new RuntimeException("Деление на ноль при взятии остатка");
+                return left % right;
+        }
+    }
+
+    private static double applyDouble(int op, double left, double right) {
+        switch (op) {
+            case CompiledExpression.OP_ADD: return left + right;
+            case CompiledExpression.OP_SUB: return left - right;
+            case CompiledExpression.OP_MUL: return left * right;
+            case CompiledExpression.OP_DIV: return left / right;
+            default: return left % right;
+        }
+    }
+
+    private long[] wideStack(int size) {
+        if (wideStack.length < size) {
+            wideStack = new long[Math.max(wideStack.length * 2, size)];
+        }
+        return wideStack;
+    }
+
+    private int[] kindStack(int size) {
+        if (kindStack.length < size) {
+            kindStack = new int[Math.max(kindStack.length * 2, size)];
+        }
+        return kindStack;
+    }
+
+    private int binaryOpcode(char op) {
+        switch (op) {
+            case '+': return CompiledExpression.OP_ADD;
+            case '-': return CompiledExpression.OP_SUB;
+            case '*': return CompiledExpression.OP_MUL;
+            case '/': return CompiledExpression.OP_DIV;
+            case '%': return CompiledExpression.OP_MOD;
+            default: return -1;
+        }
+    }
+
+    private int precedence(char op) {
+        switch (op) {
+            case '~': return 4;
+            case '*':
+            case '/':
+            case '%': return 3;
+            case '+':
+            case '-': return 2;
+            default: return 0;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.notscratch;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+public class ExpressionOptimizer {
+    private static final int MAX_PACKED = 0xFFFF;
+
+    private int registerCount;
+    private int[] code;
+    private int size;
+
+    public void reset() {
+        registerCount = 0;
+    }
+
+    public int getRegisterCount() {
+        return registerCount;
+    }
+
+    public CompiledExpression optimize(CompiledExpression expression) {
+        return optimize(expression, null);
+    }
+
+    public CompiledExpression optimize(CompiledExpression expression, BitSet loopWrites) {
+        if (expression.isEmpty() || containsFailure(expression)) {
+            return expression;
+        }
+
+        Node root = simplify(buildTree(expression.code));
+        if (loopWrites != null) {
+            markInvariants(root, loopWrites);
+        }
+
+        code = new int[expression.code.length + 8];
+        size = 0;
+        emit(root, loopWrites != null);
+        int[] result = Arrays.copyOf(code, size);
+        code = null;
+
+        if (Arrays.equals(result, expression.code)) {
+            return expression;
+        }
+        return new CompiledExpression(expression.getSource(), result, expression.messages, maxStack(result),
+                expression.constants);
+    }
+
+    private static final class Node {
+        final int op;
+        final int operand;
+        final Node left;
+        final Node right;
+        boolean hasLoad;
+        boolean wide;
+        boolean invariant;
+
+        Node(int op, int operand, Node left, Node right) {
+            this.op = op;
+            this.operand = operand;
+            this.left = left;
+            this.right = right;
+            this.hasLoad = CompiledExpression.readsSlot(op) ||
+                    (left != null && left.hasLoad) || (right != null && right.hasLoad);
+            this.wide = op == CompiledExpression.OP_CONST_LONG || op == CompiledExpression.OP_CONST_DOUBLE ||
+                    op == CompiledExpression.OP_ARRAY_SUM ||
+                    (left != null && left.wide) || (right != null && right.wide);
+        }
+
+        boolean isConst() {
+            return op == CompiledExpression.OP_CONST;
+        }
+
+        boolean isConst(int value) {
+            return op == CompiledExpression.OP_CONST && operand == value;
+        }
+    }
+
+    private boolean containsFailure(CompiledExpression expression) {
+        for (int pc = 0; pc < expression.code.length; pc += 2) {
+            if (expression.code[pc] == CompiledExpression.OP_FAIL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Node buildTree(int[] source) {
+        Node[] stack = new Node[source.length / 2 + 1];
+        int sp = 0;
+        for (int pc = 0; pc < source.length; pc += 2) {
+            int op = source[pc];
+            switch (op) {
+                case CompiledExpression.OP_CONST:
+                case CompiledExpression.OP_CONST_LONG:
+                case CompiledExpression.OP_CONST_DOUBLE:
+                case CompiledExpression.OP_LOAD:
+                case CompiledExpression.OP_ARRAY_LENGTH:
+                case CompiledExpression.OP_ARRAY_SUM:
+                    stack[sp++] = new Node(op, source[pc + 1], null, null);
+                    break;
+                case CompiledExpression.OP_NEG:
+                case CompiledExpression.OP_INDEX:
+                    stack[sp - 1] = new Node(op, source[pc + 1], stack[sp - 1], null);
+                    break;
+                default:
+                    sp--;
+                    stack[sp - 1] = new Node(op, 0, stack[sp - 1], stack[sp]);
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    private Node simplify(Node node) {
+        if (node.left == null) {
+            return node;
+        }
+
+        Node left = simplify(node.left);
+        if (node.op == CompiledExpression.OP_INDEX) {
+            return new Node(node.op, node.operand, left, null);
+        }
+        if (node.op == CompiledExpression.OP_NEG) {
+            if (left.isConst()) {
+                return constant(-left.operand);
+            }
+            if (left.op == CompiledExpression.OP_NEG) {
+                return left.left;
+            }
+            return new Node(node.op, 0, left, null);
+        }
+
+        Node right = simplify(node.right);
+        if (left.isConst() && right.isConst()) {
+            int a = left.operand;
+            int b = right.operand;
+            switch (node.op) {
+                case CompiledExpression.OP_ADD: return constant(a + b);
+                case CompiledExpression.OP_SUB: return constant(a - b);
+                case CompiledExpression.OP_MUL: return constant(a * b);
+                case CompiledExpression.OP_DIV:
+                    if (b != 0) return constant(a / b);
+                    break;
+                case CompiledExpression.OP_MOD:
+                    if (b != 0) return constant(a % b);
+                    break;
+            }
+            return new Node(node.op, 0, left, right);
+        }
+        if (left.wide || right.wide) {
+            return new Node(node.op, 0, left, right);
+        }
+
+        switch (node.op) {
+            case CompiledExpression.OP_ADD:
+                if (right.isConst(0)) return left;
+                if (left.isConst(0)) return right;
+                if (right.isConst()) return foldAdditive(left, right.operand);
+                break;
+            case CompiledExpression.OP_SUB:
+                if (right.isConst(0)) return left;
+                if (right.isConst() && right.operand != Integer.MIN_VALUE) return foldAdditive(left, -right.operand);
+                break;
+            case CompiledExpression.OP_MUL:
+                if (right.isConst(1)) return left;
+                if (left.isConst(1)) return right;
+                if (right.isConst() && left.op == CompiledExpression.OP_MUL && left.right.isConst() &&
+                        fitsInt((long) left.right.operand * right.operand)) {
+                    return new Node(CompiledExpression.OP_MUL, 0, left.left, constant(left.right.operand * right.operand));
+                }
+                break;
+            case CompiledExpression.OP_DIV:
+                if (right.isConst(1)) return left;
+                break;
+        }
+        return new Node(node.op, 0, left, right);
+    }
+
+    private Node foldAdditive(Node left, int delta) {
+        if ((left.op == CompiledExpression.OP_ADD || left.op == CompiledExpression.OP_SUB) && left.right.isConst()) {
+            long inner = left.op == CompiledExpression.OP_ADD ? left.right.operand : -(long) left.right.operand;
+            if (fitsInt(inner) && fitsInt(inner + delta)) {
+                delta += (int) inner;
+                left = left.left;
+            }
+        }
+        if (delta == 0) {
+            return left;
+        }
+        return new Node(CompiledExpression.OP_ADD, 0, left, constant(delta));
+    }
+
+    private static boolean fitsInt(long value) {
+        return value == (int) value;
+    }
+
+    private Node constant(int value) {
+        return new Node(CompiledExpression.OP_CONST, value, null, null);
+    }
+
+    private boolean markInvariants(Node node, BitSet loopWrites) {
+        boolean invariant = !CompiledExpression.readsSlot(node.op) || !loopWrites.get(node.operand);
+        if (node.left == null) {
+            return invariant;
+        }
+        invariant &= markInvariants(node.left, loopWrites);
+        if (node.right != null) {
+            invariant &= markInvariants(node.right, loopWrites);
+        }
+        node.invariant = invariant && node.hasLoad;
+        return invariant;
+    }
+
+    private void emit(Node node, boolean hoist) {
+        if (hoist && node.invariant && registerCount < MAX_PACKED) {
+            int register = registerCount++;
+            int cachedPc = size;
+            emitOp(CompiledExpression.OP_CACHED, 0);
+            emit(node, false);
+            emitOp(CompiledExpression.OP_STORE_CACHE, register);
+            int skip = size - cachedPc;
+            if (skip <= MAX_PACKED) {
+                code[cachedPc + 1] = (skip << 16) | register;
+                return;
+            }
+            size = cachedPc;
+            registerCount--;
+            hoist = false;
+        }
+
+        if (node.left != null) {
+            emit(node.left, hoist);
+        }
+        if (node.right != null) {
+            emit(node.right, hoist);
+        }
+        emitOp(node.op, node.operand);
+    }
+
+    private void emitOp(int op, int operand) {
+        if (size + 2 > code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[size++] = op;
+        code[size++] = operand;
+    }
+
+    private int maxStack(int[] source) {
+        int depth = 0;
+        int max = 0;
+        for (int pc = 0; pc < source.length; pc += 2) {
+            switch (source[pc]) {
+                case CompiledExpression.OP_CONST:
+                case CompiledExpression.OP_CONST_LONG:
+                case CompiledExpression.OP_CONST_DOUBLE:
+                case CompiledExpression.OP_LOAD:
+                case CompiledExpression.OP_ARRAY_LENGTH:
+                case CompiledExpression.OP_ARRAY_SUM:
+                    depth++;
+                    break;
+                case CompiledExpression.OP_ADD:
+                case CompiledExpression.OP_SUB:
+                case CompiledExpression.OP_MUL:
+                case CompiledExpression.OP_DIV:
+                case CompiledExpression.OP_MOD:
+                    depth--;
+                    break;
+            }
+            max = Math.max(max, depth);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.notscratch;
+
+public class OutputBuffer {
+    public static final int DEFAULT_MAX_LINES = 10000;
+
+    public interface Listener {
+        void onOutputChanged();
+    }
+
+    public interface LineConsumer {
+        void accept(long index, String line);
+    }
+
+    private final StringBuilder pending = new StringBuilder();
+    private final String[] lines;
+    private long firstIndex;
+    private long nextIndex;
+    private long retainedChars;
+    private int generation;
+    private volatile Listener listener;
+
+    public OutputBuffer() {
+        this(DEFAULT_MAX_LINES);
+    }
+
+    public OutputBuffer(int maxLines) {
+        if (maxLines <= 0) {
+            throw new IllegalArgumentException("Размер буфера вывода должен быть положительным");
+        }
+        lines = new String[maxLines];
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int getMaxLines() {
+        return lines.length;
+    }
+
+    public OutputBuffer append(String text) {
+        int start = 0;
+        int newline;
+        while ((newline = text.indexOf('\n', start)) >= 0) {
+            pending.append(text, start, newline);
+            commit();
+            start = newline + 1;
+        }
+        pending.append(text, start, text.length());
+        return this;
+    }
+
+    public OutputBuffer append(int value) {
+        pending.append(value);
+        return this;
+    }
+
+    public OutputBuffer append(long value) {
+        pending.append(value);
+        return this;
+    }
+
+    public void flush() {
+        if (pending.length() > 0) {
+            commit();
+        }
+    }
+
+    public boolean skipLines(long count) {
+        if (pending.length() > 0) {
+            return false;
+        }
+        synchronized (this) {
+            for (long i = firstIndex; i < nextIndex; i++) {
+                lines[(int) (i % lines.length)] = null;
+            }
+            nextIndex += count;
+            firstIndex = nextIndex;
+            retainedChars = 0;
+        }
+        return true;
+    }
+
+    long mark() {
+        return pending.length() > 0 ? -1 : getNextIndex();
+    }
+
+    boolean truncate(long index) {
+        pending.setLength(0);
+        synchronized (this) {
+            if (index < firstIndex || index > nextIndex) {
+                return false;
+            }
+            for (long i = index; i < nextIndex; i++) {
+                String line = lines[(int) (i % lines.length)];
+                retainedChars -= line.length();
+                lines[(int) (i % lines.length)] = null;
+            }
+            nextIndex = index;
+            generation++;
+        }
+        notifyListener();
+        return true;
+    }
+
+    public void clear() {
+        pending.setLength(0);
+        synchronized (this) {
+            for (long i = firstIndex; i < nextIndex; i++) {
+                lines[(int) (i % lines.length)] = null;
+            }
+            firstIndex = nextIndex;
+            retainedChars = 0;
+            generation++;
+        }
+        notifyListener();
+    }
+
+    public synchronized int getGeneration() {
+        return generation;
+    }
+
+    public synchronized long getFirstIndex() {
+        return firstIndex;
+    }
+
+    public synchronized long getNextIndex() {
+        return nextIndex;
+    }
+
+    public synchronized int getLineCount() {
+        return (int) (nextIndex - firstIndex);
+    }
+
+    public synchronized long estimateMemoryBytes() {
+        return (long) lines.length * 8 + (retainedChars + pending.length()) * Character.BYTES;
+    }
+
+    public synchronized long readSince(long fromIndex, LineConsumer consumer) {
+        for (long i = Math.max(fromIndex, firstIndex); i < nextIndex; i++) {
+            consumer.accept(i, lines[(int) (i % lines.length)]);
+        }
+        return nextIndex;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder();
+        for (long i = firstIndex; i < nextIndex; i++) {
+            result.append(lines[(int) (i % lines.length)]).append('\n');
+        }
+        return result.append(pending).toString();
+    }
+
+    private void commit() {
+        String line = pending.toString();
+        pending.setLength(0);
+        synchronized (this) {
+            int index = (int) (nextIndex % lines.length);
+            if (nextIndex - firstIndex == lines.length) {
+                retainedChars -= lines[index].length();
+                firstIndex++;
+            }
+            lines[index] = line;
+            retainedChars += line.length();
+            nextIndex++;
+        }
+        notifyListener();
+    }
+
+    private void notifyListener() {
+        Listener current = listener;
+        if (current != null) {
+            current.onOutputChanged();
+        }
+    }
+}
@@ -0,0 +1,812 @@
+package com.example.notscratch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+public class ProgramCompiler {
+    private static final String[] CONDITION_OPERATORS = { ">=", "<=", "!=", "==", ">", "<" };
+
+    private final SymbolTable symbols;
+    private final ExpressionEvaluator expressionEvaluator;
+    private final ExpressionOptimizer optimizer = new ExpressionOptimizer();
+
+    private int[] code;
+    private int size;
+    private List<CompiledExpression> expressions;
+    private List<String> strings;
+    private int loopCount;
+    private BitSet loopWrites;
+    private int loopDepth;
+    private boolean debug;
+    private int recompiledBlockCount;
+
+    public ProgramCompiler(SymbolTable symbols, ExpressionEvaluator expressionEvaluator) {
+        this.symbols = symbols;
+        this.expressionEvaluator = expressionEvaluator;
+    }
+
+    public CompiledProgram compile(List<Block> blocks) {
+        return compile(blocks, false);
+    }
+
+    public CompiledProgram compileForDebugging(List<Block> blocks) {
+        return compile(blocks, true);
+    }
+
+    private CompiledProgram compile(List<Block> blocks, boolean debug) {
+        this.debug = debug;
+        int blockCount = blocks.size();
+        BlockType[] blockTypes = new BlockType[blockCount];
+        long[] blockIds = new long[blockCount];
+        int[] blockVersions = new int[blockCount];
+        int[][] blockInputs = new int[blockCount][];
+        int[][] blockOutputs = new int[blockCount][];
+        BitSet reads = new BitSet();
+        BitSet writes = new BitSet();
+        int[] blockStarts = new int[blockCount];
+        int[] blockEnds = new int[blockCount];
+        List<CompiledExpression> linkedExpressions = new ArrayList<>();
+        List<String> linkedStrings = new ArrayList<>();
+        int[] linked = new int[64];
+        int linkedSize = 0;
+        int linkedLoops = 0;
+        int cacheRegisters = 0;
+        recompiledBlockCount = 0;
+
+        Iterator<Block> iterator = blocks.iterator();
+        for (int i = 0; i < blockCount; i++) {
+            Block block = iterator.next();
+            BlockFragment fragment = debug ? compileFragment(block) : fragmentFor(block);
+            blockTypes[i] = block.getType();
+            blockIds[i] = block.getId();
+            blockVersions[i] = block.getVersion();
+            reads.clear();
+            writes.clear();
+            fragment.collectSlots(reads, writes);
+            reads.or(writes);
+            blockInputs[i] = reads.stream().toArray();
+            blockOutputs[i] = writes.stream().toArray();
+
+            int required = linkedSize + fragment.code.length + 7;
+            if (required > linked.length) {
+                linked = Arrays.copyOf(linked, Math.max(linked.length * 2, required));
+            }
+
+            blockStarts[i] = linkedSize;
+            linked[linkedSize++] = CompiledProgram.OP_BLOCK;
+            linked[linkedSize++] = i;
+            linked[linkedSize++] = linkedStrings.size();
+            linkedStrings.add("▶ Блок #" + (i + 1) + " (" + block.getType().getDisplayName() + "):\n");
+            if (debug) {
+                linked[linkedSize++] = CompiledProgram.OP_DEBUG;
+                linked[linkedSize++] = 0;
+                linked[linkedSize++] = -1;
+            }
+
+            relocate(fragment, linked, linkedSize, linkedExpressions.size(), linkedStrings.size(), linkedLoops);
+            linkedSize += fragment.code.length;
+            linked[linkedSize++] = CompiledProgram.OP_END_BLOCK;
+            blockEnds[i] = linkedSize;
+
+            Collections.addAll(linkedExpressions, fragment.expressions);
+            Collections.addAll(linkedStrings, fragment.strings);
+            linkedLoops += fragment.loopCount;
+            cacheRegisters = Math.max(cacheRegisters, fragment.cacheRegisterCount);
+        }
+
+        return new CompiledProgram(Arrays.copyOf(linked, linkedSize),
+                linkedExpressions.toArray(new CompiledExpression[0]), linkedStrings.toArray(new String[0]),
+                blockTypes, blockIds, blockVersions, blockInputs, blockOutputs, blockStarts, blockEnds, linkedLoops, cacheRegisters);
+    }
+
+    public int getRecompiledBlockCount() {
+        return recompiledBlockCount;
+    }
+
+    private BlockFragment fragmentFor(Block block) {
+        BlockFragment fragment = block.getCompiledFragment();
+        if (fragment == null || !fragment.isValidFor(block, symbols)) {
+            fragment = compileFragment(block);
+            block.setCompiledFragment(fragment);
+            recompiledBlockCount++;
+        }
+        return fragment;
+    }
+
+    private BlockFragment compileFragment(Block block) {
+        code = new int[16];
+        size = 0;
+        expressions = new ArrayList<>();
+        strings = new ArrayList<>();
+        loopCount = 0;
+        loopWrites = null;
+        loopDepth = 0;
+        optimizer.reset();
+
+        try {
+            compileBlock(block);
+        } catch (RuntimeException e) {
+            size = 0;
+            expressions.clear();
+            strings.clear();
+            loopCount = 0;
+            loopWrites = null;
+            optimizer.reset();
+            emit(CompiledProgram.OP_FAIL, string(e.getMessage()));
+        }
+
+        BlockFragment fragment = new BlockFragment(symbols, block.getVersion(), Arrays.copyOf(code, size),
+                expressions.toArray(new CompiledExpression[0]), strings.toArray(new String[0]),
+                loopCount, optimizer.getRegisterCount());
+        code = null;
+        expressions = null;
+        strings = null;
+        return fragment;
+    }
+
+    private void relocate(BlockFragment fragment, int[] target, int offset,
+                          int expressionBase, int stringBase, int loopBase) {
+        int[] source = fragment.code;
+        System.arraycopy(source, 0, target, offset, source.length);
+
+        int pc = 0;
+        while (pc < source.length) {
+            int at = offset + pc;
+            switch (source[pc]) {
+                case CompiledProgram.OP_PRINT:
+                case CompiledProgram.OP_FAIL:
+                case CompiledProgram.OP_PRINT_ACC:
+                case CompiledProgram.OP_PRINT_FLAG:
+                    target[at + 1] += stringBase;
+                    pc += 2;
+                    break;
+                case CompiledProgram.OP_DECLARE:
+                case CompiledProgram.OP_JUMP:
+                case CompiledProgram.OP_JUMP_FALSE:
+                    pc += 2;
+                    break;
+                case CompiledProgram.OP_DECLARE_WIDE:
+                    pc += 3;
+                    break;
+                case CompiledProgram.OP_NEW_ARRAY:
+                    target[at + 2] += expressionBase;
+                    pc += 3;
+                    break;
+                case CompiledProgram.OP_STORE_ELEMENT:
+                    target[at + 2] += expressionBase;
+                    target[at + 3] += expressionBase;
+                    if (source[pc + 4] >= 0) target[at + 4] += stringBase;
+                    pc += 5;
+                    break;
+                case CompiledProgram.OP_ARRAY_CALL:
+                    for (int i = 4; i <= 6; i++) {
+                        if (source[pc + i] >= 0) target[at + i] += expressionBase;
+                    }
+                    if (source[pc + 7] >= 0) target[at + 7] += stringBase;
+                    pc += 8;
+                    break;
+                case CompiledProgram.OP_ASSIGN:
+                    target[at + 2] += expressionBase;
+                    pc += 3;
+                    break;
+                case CompiledProgram.OP_ASSIGN_TRACE:
+                    target[at + 2] += expressionBase;
+                    target[at + 3] += stringBase;
+                    target[at + 4] += stringBase;
+                    pc += 5;
+                    break;
+                case CompiledProgram.OP_EVAL:
+                    target[at + 1] += expressionBase;
+                    pc += 2;
+                    break;
+                case CompiledProgram.OP_EVAL_TRACE:
+                    target[at + 1] += expressionBase;
+                    target[at + 2] += stringBase;
+                    target[at + 3] += stringBase;
+                    pc += 4;
+                    break;
+                case CompiledProgram.OP_TEST:
+                    if (source[pc + 2] >= 0) target[at + 2] += expressionBase;
+                    if (source[pc + 3] >= 0) target[at + 3] += expressionBase;
+                    pc += 4;
+                    break;
+                case CompiledProgram.OP_LOOP_ENTER:
+                    target[at + 1] += loopBase;
+                    pc += 4;
+                    break;
+                case CompiledProgram.OP_ITERATE:
+                    target[at + 1] += loopBase;
+                    target[at + 2] += stringBase;
+                    target[at + 3] += stringBase;
+                    pc += 4;
+                    break;
+                case CompiledProgram.OP_ITERATE_UNCOND:
+                case CompiledProgram.OP_LOOP_EXIT:
+                    target[at + 1] += loopBase;
+                    target[at + 2] += stringBase;
+                    pc += 3;
+                    break;
+                case CompiledProgram.OP_DEBUG:
+                    if (source[pc + 2] >= 0) target[at + 2] += loopBase;
+                    pc += 3;
+                    break;
+                case CompiledProgram.OP_FOR_COUNTED:
+                    target[at + 2] += loopBase;
+                    target[at + 4] += expressionBase;
+                    target[at + 5] += expressionBase;
+                    target[at + 9] += stringBase;
+                    target[at + 10] += stringBase;
+                    pc += 11;
+                    break;
+                case CompiledProgram.OP_FOR_NEXT:
+                    target[at + 2] += loopBase;
+                    target[at + 3] += expressionBase;
+                    pc += 6;
+                    break;
+                case CompiledProgram.OP_ACCUMULATE:
+                    target[at + 4] += expressionBase;
+                    target[at + 5] += stringBase;
+                    target[at + 6] += stringBase;
+                    pc += 7;
+                    break;
+                default:
+                    throw new IllegalStateException("Неизвестная инструкция: " + source[pc]);
+            }
+        }
+    }
+
+    private void compileBlock(Block block) {
+        String source = block.getCode();
+        switch (block.getType()) {
+            case VARIABLE_DECLARATION:
+                compileVariableDeclaration(source);
+                emit(CompiledProgram.OP_PRINT,
+                        string("  Объявлены переменные: " + declaredNames(source).trim() + "\n"));
+                break;
+            case ASSIGNMENT:
+                compileAssignment(source);
+                emit(CompiledProgram.OP_PRINT, string("  Присвоено: " + source + "\n"));
+                break;
+            case ARITHMETIC: {
+                String[] call = arrayCall(source);
+                if (call != null) {
+                    compileArrayCall(call, -1);
+                    emit(CompiledProgram.OP_PRINT, string("  Выполнено: " + source + "\n"));
+                    break;
+                }
+                emit(CompiledProgram.OP_EVAL, expression(source));
+                emit(CompiledProgram.OP_PRINT_ACC, string("  Вычислено: " + source + " = "));
+                break;
+            }
+            case IF_STATEMENT:
+            case WHILE_LOOP:
+            case FOR_LOOP:
+                compileStatement(new BlockParser(source).parseBlock(block.getType()), "  ");
+                break;
+        }
+    }
+
+    private void compileVariableDeclaration(String source) {
+        int kind = VariableManager.declaredKind(source);
+        String[] parts = declaredNames(source).split(",");
+        for (String part : parts) {
+            String varName = part.trim();
+            if (varName.isEmpty()) {
+                continue;
+            }
+            if (kind == VariableManager.INT) {
+                emit(CompiledProgram.OP_DECLARE, symbols.slotOf(varName));
+            } else if (kind == VariableManager.ARRAY) {
+                compileArrayDeclaration(varName);
+            } else {
+                emit(CompiledProgram.OP_DECLARE_WIDE, symbols.slotOf(varName), kind);
+            }
+        }
+    }
+
+    private void compileArrayDeclaration(String declaration) {
+        String[] parts = declaration.split("=", 2);
+        String name = parts[0].trim();
+        String initializer = parts.length == 2 ? parts[1].trim() : "";
+        if (!initializer.startsWith("new int[") || !initializer.endsWith("]")) {
+            throw new RuntimeException("Массив '" + name + "' должен создаваться выражением new int[размер]");
+        }
+        emit(CompiledProgram.OP_NEW_ARRAY, symbols.slotOf(name),
+                expression(initializer.substring("new int[".length(), initializer.length() - 1)));
+    }
+
+    private static String declaredNames(String source) {
+        int kind = VariableManager.declaredKind(source);
+        if (kind == VariableManager.INT) {
+            return source.replace("int", "");
+        }
+        return source.trim().substring(VariableManager.typeName(kind).length());
+    }
+
+    private void compileAssignment(String source) {
+        String[] parts = source.split("=", 2);
+        if (parts.length != 2) {
+            emit(CompiledProgram.OP_FAIL, string("Некорректное присваивание: " + source));
+            return;
+        }
+        String target = parts[0].trim();
+        if (target.indexOf('[') >= 0) {
+            compileStore(target, parts[1].trim(), -1);
+            return;
+        }
+        emit(CompiledProgram.OP_ASSIGN, symbols.slotOf(target), expression(parts[1].trim()));
+    }
+
+    private void compileStore(String target, String value, int error) {
+        int open = target.indexOf('[');
+        if (!target.endsWith("]")) {
+            throw new RuntimeException("Некорректный индекс массива: " + target);
+        }
+        emit(CompiledProgram.OP_STORE_ELEMENT, symbols.slotOf(target.substring(0, open).trim()),
+                expression(target.substring(open + 1, target.length() - 1)), expression(value), error);
+    }
+
+    private void compileArrayCall(String[] call, int error) {
+        switch (call[0]) {
+            case "fill":
+                emit(CompiledProgram.OP_ARRAY_CALL, CompiledProgram.ARRAY_FILL, symbols.slotOf(call[1]), -1,
+                        expression(call[2]), -1, -1, error);
+                break;
+            case "sort":
+                emit(CompiledProgram.OP_ARRAY_CALL, CompiledProgram.ARRAY_SORT, symbols.slotOf(call[1]), -1,
+                        -1, -1, -1, error);
+                break;
+            default:
+                emit(CompiledProgram.OP_ARRAY_CALL, CompiledProgram.ARRAY_COPY, symbols.slotOf(call[1]),
+                        symbols.slotOf(call[3]), expression(call[2]), expression(call[4]), expression(call[5]), error);
+                break;
+        }
+    }
+
+    private static String[] arrayCall(String text) {
+        String trimmed = text.trim();
+        int open = trimmed.indexOf('(');
+        if (open < 0 || !trimmed.endsWith(")")) {
+            return null;
+        }
+        String name = trimmed.substring(0, open).trim();
+        int arity;
+        switch (name) {
+            case "fill": arity = 2; break;
+            case "sort": arity = 1; break;
+            case "copy": arity = 5; break;
+            default: return null;
+        }
+
+        String[] arguments = trimmed.substring(open + 1, trimmed.length() - 1).split(",", -1);
+        if (arguments.length != arity) {
+            throw new RuntimeException("Функция " + name + " принимает аргументов: " + arity);
+        }
+        String[] call = new String[arity + 1];
+        call[0] = name;
+        for (int i = 0; i < arity; i++) {
+            call[i + 1] = arguments[i].trim();
+        }
+        return call;
+    }
+
+    private void compileStatement(Statement statement, String indent) {
+        if (statement instanceof Statement.Simple) {
+            compileSimple((Statement.Simple) statement, indent);
+        } else if (statement instanceof Statement.If) {
+            compileIf((Statement.If) statement, indent);
+        } else if (statement instanceof Statement.While) {
+            compileWhile((Statement.While) statement, indent);
+        } else {
+            compileFor((Statement.For) statement, indent);
+        }
+    }
+
+    private void compileStatements(List<Statement> statements, String indent) {
+        for (Statement statement : statements) {
+            compileStatement(statement, indent);
+        }
+    }
+
+    private void compileSimple(Statement.Simple statement, String indent) {
+        String text = statement.text;
+        int error = string(indent + "❌ Ошибка: " + text + " - ");
+        if (statement.isAssignment()) {
+            String[] parts = text.split("=", 2);
+            String target = parts[0].trim();
+            if (target.indexOf('[') >= 0) {
+                compileStore(target, parts[1].trim(), error);
+                emit(CompiledProgram.OP_PRINT, string(indent + "Выполнено: " + text + "\n"));
+                return;
+            }
+            emit(CompiledProgram.OP_ASSIGN_TRACE, symbols.slotOf(target),
+                    expression(parts[1].trim()), string(indent + "Выполнено: " + text + "\n"), error);
+            return;
+        }
+
+        String[] call = arrayCall(text);
+        if (call != null) {
+            compileArrayCall(call, error);
+            emit(CompiledProgram.OP_PRINT, string(indent + "Выполнено: " + text + "\n"));
+        } else {
+            emit(CompiledProgram.OP_EVAL_TRACE, expression(text), string(indent + "Вычислено: " + text + " = "), error);
+        }
+    }
+
+    private void compileIf(Statement.If statement, String indent) {
+        int[] jumpsToEnd = new int[statement.conditions.size()];
+        for (int i = 0; i < jumpsToEnd.length; i++) {
+            String condition = statement.conditions.get(i);
+            compileCondition(condition);
+            emit(CompiledProgram.OP_PRINT_FLAG, string(indent + "Условие: " + condition + " - "));
+            int jumpToNext = emitJump(CompiledProgram.OP_JUMP_FALSE);
+
+            emit(CompiledProgram.OP_PRINT,
+                    string(indent + (i == 0 ? "Выполняется блок if:\n" : "Выполняется блок else if:\n")));
+            compileStatements(statement.branches.get(i), indent + "  ");
+            jumpsToEnd[i] = emitJump(CompiledProgram.OP_JUMP);
+            patchJump(jumpToNext);
+        }
+
+        if (statement.elseBranch != null) {
+            emit(CompiledProgram.OP_PRINT, string(indent + "Выполняется блок else:\n"));
+            compileStatements(statement.elseBranch, indent + "  ");
+        }
+        for (int jump : jumpsToEnd) {
+            patchJump(jump);
+        }
+    }
+
+    private void compileWhile(Statement.While statement, String indent) {
+        int loop = loopCount++;
+        BitSet outerWrites = loopWrites;
+        BitSet writes = new BitSet();
+        collectWrites(statement.body, writes);
+
+        int loopEnter = beginLoop(loop, writes);
+        int loopStart = size;
+        compileCondition(statement.condition);
+        int jumpToExit = emitJump(CompiledProgram.OP_JUMP_FALSE);
+        emit(CompiledProgram.OP_ITERATE, loop, string(indent + "Итерация "), string(statement.condition));
+        compileLoopBody(loop, statement.body, indent);
+        emit(CompiledProgram.OP_JUMP, loopStart - size);
+        patchJump(jumpToExit);
+        endLoop(loopEnter, outerWrites);
+        emit(CompiledProgram.OP_LOOP_EXIT, loop, string(indent + "Цикл while завершен после "));
+    }
+
+    private void compileFor(Statement.For statement, String indent) {
+        int loop = loopCount++;
+        if (!statement.init.isEmpty()) {
+            emit(CompiledProgram.OP_PRINT, string(indent + "Инициализация: " + statement.init + "\n"));
+            compileAssignment(statement.init);
+        }
+
+        BitSet outerWrites = loopWrites;
+        BitSet writes = new BitSet();
+        collectWrites(statement.body, writes);
+        CountedLoop counted = countedLoop(statement, writes);
+        collectWrite(statement.increment, writes);
+
+        int loopEnter = beginLoop(loop, writes);
+        if (counted != null) {
+            compileCountedLoop(loop, statement, counted, indent);
+            endLoop(loopEnter, outerWrites);
+            emit(CompiledProgram.OP_LOOP_EXIT, loop, string(indent + "Цикл for завершен после "));
+            return;
+        }
+
+        int loopStart = size;
+        int jumpToExit = -1;
+        if (!statement.condition.isEmpty()) {
+            compileCondition(statement.condition);
+            jumpToExit = emitJump(CompiledProgram.OP_JUMP_FALSE);
+            emit(CompiledProgram.OP_ITERATE, loop, string(indent + "Итерация "), string(statement.condition));
+        } else {
+            emit(CompiledProgram.OP_ITERATE_UNCOND, loop, string(indent + "Итерация "));
+        }
+
+        compileLoopBody(loop, statement.body, indent);
+        if (!statement.increment.isEmpty()) {
+            compileAssignment(statement.increment);
+        }
+        emit(CompiledProgram.OP_JUMP, loopStart - size);
+        if (jumpToExit >= 0) {
+            patchJump(jumpToExit);
+        }
+        endLoop(loopEnter, outerWrites);
+        emit(CompiledProgram.OP_LOOP_EXIT, loop, string(indent + "Цикл for завершен после "));
+    }
+
+    private void compileCountedLoop(int loop, Statement.For statement, CountedLoop counted, String indent) {
+        int slot = symbols.slotOf(counted.counter);
+        List<String[]> accumulators = debug ? null : accumulators(statement.body, counted.counter);
+        int loopStart = size;
+        emit(CompiledProgram.OP_FOR_COUNTED, slot, loop, counted.kind, expression(counted.counter),
+                expression(counted.bound), counted.step, accumulators != null ? 1 : 0, 0,
+                string(indent + "Итерация "), string(statement.condition));
+
+        if (accumulators != null) {
+            String bodyIndent = indent + "  ";
+            for (String[] accumulator : accumulators) {
+                String addend = accumulator[1];
+                boolean counterAddend = addend.equals(counted.counter);
+                emit(CompiledProgram.OP_ACCUMULATE, symbols.slotOf(accumulator[0]), counterAddend ? slot : -1,
+                        counterAddend ? 0 : Integer.parseInt(addend), expression(accumulator[2]),
+                        string(bodyIndent + "Выполнено: " + accumulator[3] + "\n"),
+                        string(bodyIndent + "❌ Ошибка: " + accumulator[3] + " - "));
+            }
+        } else {
+            compileLoopBody(loop, statement.body, indent);
+        }
+
+        emit(CompiledProgram.OP_FOR_NEXT, slot, loop, expression(statement.increment.split("=", 2)[1].trim()),
+                counted.step, loopStart - size);
+        code[loopStart + 8] = size - loopStart;
+    }
+
+    private CountedLoop countedLoop(Statement.For statement, BitSet bodyWrites) {
+        String[] increment = statement.increment.split("=", 2);
+        if (increment.length != 2) {
+            return null;
+        }
+        String counter = increment[0].trim();
+        if (!isIdentifier(counter) || bodyWrites.get(symbols.slotOf(counter))) {
+            return null;
+        }
+
+        String value = increment[1].trim();
+        int plus = value.indexOf('+');
+        int minus = value.indexOf('-');
+        int op = Math.max(plus, minus);
+        if (op <= 0 || (plus >= 0 && minus >= 0) || value.indexOf(value.charAt(op), op + 1) >= 0) {
+            return null;
+        }
+        String left = value.substring(0, op).trim();
+        String right = value.substring(op + 1).trim();
+        int step;
+        if (left.equals(counter) && isIntLiteral(right)) {
+            step = Integer.parseInt(right);
+        } else if (op == plus && right.equals(counter) && isIntLiteral(left)) {
+            step = Integer.parseInt(left);
+        } else {
+            return null;
+        }
+        if (op == minus) {
+            step = -step;
+        }
+        if (step == 0) {
+            return null;
+        }
+
+        String condition = statement.condition;
+        String operator = conditionOperator(condition);
+        if (operator.isEmpty() || operator.equals("==")) {
+            return null;
+        }
+        int opIndex = condition.indexOf(operator);
+        String bound = condition.substring(opIndex + operator.length()).trim();
+        if (!condition.substring(0, opIndex).trim().equals(counter) || bound.isEmpty()) {
+            return null;
+        }
+
+        CompiledExpression compiled;
+        try {
+            compiled = expressionEvaluator.compile(bound);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        int counterSlot = symbols.slotOf(counter);
+        for (int pc = 0; pc < compiled.code.length; pc += 2) {
+            if (CompiledExpression.readsSlot(compiled.code[pc]) &&
+                    (compiled.code[pc + 1] == counterSlot || bodyWrites.get(compiled.code[pc + 1]))) {
+                return null;
+            }
+        }
+        return new CountedLoop(counter, testKind(operator), bound, step);
+    }
+
+    private static List<String[]> accumulators(List<Statement> body, String counter) {
+        if (body.isEmpty()) {
+            return null;
+        }
+        List<String[]> accumulators = new ArrayList<>();
+        Set<String> targets = new HashSet<>();
+        for (Statement statement : body) {
+            if (!(statement instanceof Statement.Simple) || !((Statement.Simple) statement).isAssignment()) {
+                return null;
+            }
+            String text = ((Statement.Simple) statement).text;
+            String[] parts = text.split("=", 2);
+            String target = parts[0].trim();
+            if (!isIdentifier(target) || target.equals(counter) || !targets.add(target)) {
+                return null;
+            }
+            String[] operands = parts[1].split("\\+", -1);
+            if (operands.length != 2) {
+                return null;
+            }
+            String left = operands[0].trim();
+            String right = operands[1].trim();
+            String addend = left.equals(target) ? right : right.equals(target) ? left : null;
+            if (addend == null || !(addend.equals(counter) || isIntLiteral(addend))) {
+                return null;
+            }
+            accumulators.add(new String[] { target, addend, parts[1].trim(), text });
+        }
+        return accumulators;
+    }
+
+    private static boolean isIdentifier(String text) {
+        if (text.isEmpty() || !Character.isLetter(text.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIntLiteral(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        try {
+            Integer.parseInt(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void compileLoopBody(int loop, List<Statement> body, String indent) {
+        loopDepth++;
+        if (debug) {
+            emit(CompiledProgram.OP_DEBUG, loopDepth, loop);
+        }
+        compileStatements(body, indent + "  ");
+        loopDepth--;
+    }
+
+    private void compileCondition(String condition) {
+        if (condition.isEmpty()) {
+            emit(CompiledProgram.OP_TEST, CompiledProgram.TEST_TRUE, -1, -1);
+            return;
+        }
+
+        String op = conditionOperator(condition);
+        int opIndex = condition.indexOf(op);
+
+        if (op.isEmpty()) {
+            emit(CompiledProgram.OP_TEST, CompiledProgram.TEST_NONZERO, expression(condition), -1);
+            return;
+        }
+
+        String leftExpr = condition.substring(0, opIndex).trim();
+        String rightExpr = condition.substring(opIndex + op.length()).trim();
+        emit(CompiledProgram.OP_TEST, testKind(op), expression(leftExpr), expression(rightExpr));
+    }
+
+    private static String conditionOperator(String condition) {
+        for (String operator : CONDITION_OPERATORS) {
+            if (condition.indexOf(operator) != -1) {
+                return operator;
+            }
+        }
+        return "";
+    }
+
+    private int testKind(String op) {
+        switch (op) {
+            case ">": return CompiledProgram.TEST_GT;
+            case "<": return CompiledProgram.TEST_LT;
+            case ">=": return CompiledProgram.TEST_GE;
+            case "<=": return CompiledProgram.TEST_LE;
+            case "==": return CompiledProgram.TEST_EQ;
+            case "!=": return CompiledProgram.TEST_NE;
+            default: throw new RuntimeException("Неизвестный оператор: " + op);
+        }
+    }
+
+    private void collectWrites(List<Statement> statements, BitSet writes) {
+        for (Statement statement : statements) {
+            if (statement instanceof Statement.Simple) {
+                collectWrite(((Statement.Simple) statement).text, writes);
+            } else if (statement instanceof Statement.If) {
+                Statement.If ifStatement = (Statement.If) statement;
+                for (List<Statement> branch : ifStatement.branches) {
+                    collectWrites(branch, writes);
+                }
+                if (ifStatement.elseBranch != null) {
+                    collectWrites(ifStatement.elseBranch, writes);
+                }
+            } else if (statement instanceof Statement.While) {
+                collectWrites(((Statement.While) statement).body, writes);
+            } else {
+                Statement.For forStatement = (Statement.For) statement;
+                collectWrite(forStatement.init, writes);
+                collectWrite(forStatement.increment, writes);
+                collectWrites(forStatement.body, writes);
+            }
+        }
+    }
+
+    private void collectWrite(String statement, BitSet writes) {
+        if (statement.contains("=")) {
+            String target = statement.split("=", 2)[0];
+            int open = target.indexOf('[');
+            writes.set(symbols.slotOf((open >= 0 ? target.substring(0, open) : target).trim()));
+            return;
+        }
+        String[] call = arrayCall(statement);
+        if (call != null) {
+            writes.set(symbols.slotOf(call[0].equals("copy") ? call[3] : call[1]));
+        }
+    }
+
+    private int beginLoop(int loop, BitSet writes) {
+        emit(CompiledProgram.OP_LOOP_ENTER, loop, optimizer.getRegisterCount(), 0);
+        loopWrites = writes;
+        return size - 4;
+    }
+
+    private void endLoop(int loopEnterPc, BitSet outerWrites) {
+        code[loopEnterPc + 3] = optimizer.getRegisterCount();
+        loopWrites = outerWrites;
+    }
+
+    private int expression(String source) {
+        expressions.add(optimizer.optimize(expressionEvaluator.compile(source), loopWrites));
+        return expressions.size() - 1;
+    }
+
+    private int string(String value) {
+        strings.add(value);
+        return strings.size() - 1;
+    }
+
+    private int emitJump(int opcode) {
+        emit(opcode, 0);
+        return size - 2;
+    }
+
+    private void patchJump(int jumpPc) {
+        code[jumpPc + 1] = size - jumpPc;
+    }
+
+    private void emit(int... words) {
+        if (size + words.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + words.length));
+        }
+        System.arraycopy(words, 0, code, size, words.length);
+        size += words.length;
+    }
+
+    private static final class CountedLoop {
+        final String counter;
+        final int kind;
+        final String bound;
+        final int step;
+
+        CountedLoop(String counter, int kind, String bound, int step) {
+            this.counter = counter;
+            this.kind = kind;
+            this.bound = bound;
+            this.step = step;
+        }
+    }
+}
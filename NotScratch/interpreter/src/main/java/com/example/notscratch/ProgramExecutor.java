@@ -0,0 +1,294 @@
+package com.example.notscratch;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class ProgramExecutor {
+    private final VariableManager variableManager;
+    private final ExpressionEvaluator expressionEvaluator;
+    private final ProgramCompiler programCompiler;
+    private final VirtualMachine virtualMachine;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private final List<String> checkpointErrors = new ArrayList<>();
+    private boolean incremental;
+    private OutputBuffer checkpointOutput;
+    private int checkpointGeneration;
+    private long startIndex;
+    private List<Checkpoint> previousCheckpoints = Collections.emptyList();
+    private List<String> previousErrors = Collections.emptyList();
+    private List<String> previousLines = Collections.emptyList();
+    private long previousLinesStart;
+    private CompiledProgram previousProgram;
+    private boolean[] previousBlocks;
+    private final BitSet changedSlots = new BitSet();
+    private int recomputedBlocks;
+
+    private static final class Checkpoint {
+        final long blockId;
+        final int blockVersion;
+        final VariableManager.Snapshot variables;
+        final long outputIndex;
+        final int errorCount;
+
+        Checkpoint(long blockId, int blockVersion, VariableManager.Snapshot variables,
+                   long outputIndex, int errorCount) {
+            this.blockId = blockId;
+            this.blockVersion = blockVersion;
+            this.variables = variables;
+            this.outputIndex = outputIndex;
+            this.errorCount = errorCount;
+        }
+
+        boolean matches(CompiledProgram program, int block) {
+            return program.blockIds[block] == blockId && program.blockVersions[block] == blockVersion;
+        }
+    }
+
+    public ProgramExecutor() {
+        this(new VariableManager());
+    }
+
+    public ProgramExecutor(VariableManager variableManager) {
+        this.variableManager = variableManager;
+        this.expressionEvaluator = new ExpressionEvaluator(variableManager);
+        this.programCompiler = new ProgramCompiler(variableManager.getSymbols(), expressionEvaluator);
+        this.virtualMachine = new VirtualMachine(variableManager, expressionEvaluator);
+    }
+
+    public VariableManager getVariableManager() {
+        return variableManager;
+    }
+
+    public VirtualMachine getVirtualMachine() {
+        return virtualMachine;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) {
+            invalidateCheckpoints();
+        }
+    }
+
+    public void invalidateCheckpoints() {
+        checkpoints.clear();
+        checkpointErrors.clear();
+        checkpointOutput = null;
+    }
+
+    public CompiledProgram compile(List<Block> blocks) {
+        return programCompiler.compile(blocks);
+    }
+
+    public CompiledProgram compileForDebugging(List<Block> blocks) {
+        return programCompiler.compileForDebugging(blocks);
+    }
+
+    public void execute(CompiledProgram program, ExecutionBudget budget, OutputBuffer output,
+                        VirtualMachine.OnErrorListener errorListener) {
+        execute(program, budget, output, errorListener, null);
+    }
+
+    public void execute(CompiledProgram program, ExecutionBudget budget, OutputBuffer output,
+                        VirtualMachine.OnErrorListener errorListener, Debugger debugger) {
+        execute(program, budget, output, errorListener, debugger, false);
+    }
+
+    public void executeLive(CompiledProgram program, ExecutionBudget budget, OutputBuffer output,
+                            VirtualMachine.OnErrorListener errorListener) {
+        execute(program, budget, output, errorListener, null, true);
+    }
+
+    private void execute(CompiledProgram program, ExecutionBudget budget, OutputBuffer output,
+                         VirtualMachine.OnErrorListener errorListener, Debugger debugger, boolean live) {
+        recomputedBlocks = 0;
+        int firstBlock = debugger == null ? resumableBlock(program, output) : -1;
+        if (firstBlock >= 0) {
+            long resumeIndex = firstBlock > 0 ? checkpoints.get(firstBlock - 1).outputIndex : startIndex;
+            int errorCount = firstBlock > 0 ? checkpoints.get(firstBlock - 1).errorCount : 0;
+            if (live) {
+                keepPrevious(output, resumeIndex);
+                planReuse(program, firstBlock);
+            }
+            checkpoints.subList(firstBlock, checkpoints.size()).clear();
+            checkpointErrors.subList(errorCount, checkpointErrors.size()).clear();
+            if (firstBlock > 0) {
+                variableManager.restore(checkpoints.get(firstBlock - 1).variables);
+            } else {
+                variableManager.clear();
+            }
+            output.truncate(resumeIndex);
+            if (errorListener != null) {
+                for (String error : checkpointErrors) {
+                    errorListener.onError(error);
+                }
+            }
+        } else {
+            firstBlock = 0;
+            invalidateCheckpoints();
+            variableManager.clear();
+            output.clear();
+            output.append("=== Начало выполнения программы ===\n\n");
+            startIndex = output.mark();
+        }
+
+        if (incremental && debugger == null) {
+            checkpointOutput = output;
+            checkpointGeneration = output.getGeneration();
+            VirtualMachine.OnErrorListener errors = message -> {
+                checkpointErrors.add(message);
+                if (errorListener != null) {
+                    errorListener.onError(message);
+                }
+            };
+            try {
+                while (firstBlock < program.getBlockCount() && reuse(program, firstBlock, output, errors)) {
+                    firstBlock++;
+                }
+                virtualMachine.run(program, firstBlock, budget, output, errors, null,
+                        block -> blockFinished(program, block, output, errors));
+            } finally {
+                previousCheckpoints = Collections.emptyList();
+                previousErrors = Collections.emptyList();
+                previousLines = Collections.emptyList();
+                previousBlocks = null;
+                changedSlots.clear();
+                previousProgram = program;
+            }
+        } else {
+            virtualMachine.run(program, budget, output, errorListener, debugger);
+            recomputedBlocks = program.getBlockCount();
+        }
+
+        output.append("=== Состояние переменных ===\n");
+        variableManager.getAllVariables().forEach((name, value) ->
+                output.append(name).append(" = ").append(VariableManager.describe(value)).append("\n"));
+    }
+
+    public int getRecomputedBlockCount() {
+        return recomputedBlocks;
+    }
+
+    private int resumableBlock(CompiledProgram program, OutputBuffer output) {
+        if (!incremental || output != checkpointOutput || output.getGeneration() != checkpointGeneration) {
+            return -1;
+        }
+        int count = Math.min(checkpoints.size(), program.getBlockCount());
+        int valid = 0;
+        while (valid < count && checkpoints.get(valid).matches(program, valid)) {
+            valid++;
+        }
+        long resumeIndex = valid > 0 ? checkpoints.get(valid - 1).outputIndex : startIndex;
+        return resumeIndex >= output.getFirstIndex() ? valid : -1;
+    }
+
+    private void keepPrevious(OutputBuffer output, long resumeIndex) {
+        previousCheckpoints = new ArrayList<>(checkpoints);
+        previousErrors = new ArrayList<>(checkpointErrors);
+        List<String> lines = new ArrayList<>();
+        output.readSince(resumeIndex, (index, line) -> lines.add(line));
+        previousLines = lines;
+        previousLinesStart = resumeIndex;
+    }
+
+    private void planReuse(CompiledProgram program, int firstBlock) {
+        CompiledProgram previous = previousProgram;
+        int previousCount = previous == null ? 0 : Math.min(previous.getBlockCount(), previousCheckpoints.size());
+        previousBlocks = new boolean[program.getBlockCount()];
+        changedSlots.clear();
+        for (int block = firstBlock; previous != null && block < previous.getBlockCount(); block++) {
+            if (block < previousCount && block < program.getBlockCount() &&
+                    previous.blockIds[block] == program.blockIds[block] &&
+                    previous.blockVersions[block] == program.blockVersions[block]) {
+                previousBlocks[block] = true;
+            } else {
+                markChanged(previous.blockOutputs[block]);
+            }
+        }
+    }
+
+    private void markChanged(int[] slots) {
+        for (int slot : slots) {
+            changedSlots.set(slot);
+        }
+    }
+
+    private int blockFinished(CompiledProgram program, int block, OutputBuffer output,
+                              VirtualMachine.OnErrorListener errors) {
+        recomputedBlocks++;
+        if (previousBlocks != null) {
+            markChanged(program.blockOutputs[block]);
+        }
+        recordCheckpoint(program, block, output);
+        int next = block + 1;
+        while (next < program.getBlockCount() && reuse(program, next, output, errors)) {
+            next++;
+        }
+        return next;
+    }
+
+    private boolean reuse(CompiledProgram program, int block, OutputBuffer output,
+                          VirtualMachine.OnErrorListener errors) {
+        if (previousBlocks == null || !previousBlocks[block] || checkpoints.size() != block) {
+            return false;
+        }
+        for (int slot : program.blockInputs[block]) {
+            if (changedSlots.get(slot)) {
+                return false;
+            }
+        }
+        long beforeOutput = block > 0 ? previousCheckpoints.get(block - 1).outputIndex : startIndex;
+        int beforeErrors = block > 0 ? previousCheckpoints.get(block - 1).errorCount : 0;
+        Checkpoint after = previousCheckpoints.get(block);
+        if (beforeOutput < previousLinesStart || after.outputIndex > previousLinesStart + previousLines.size()) {
+            return false;
+        }
+
+        variableManager.copyState(after.variables, program.blockOutputs[block]);
+        for (long i = beforeOutput; i < after.outputIndex; i++) {
+            output.append(previousLines.get((int) (i - previousLinesStart))).append("\n");
+        }
+        for (int i = beforeErrors; i < after.errorCount; i++) {
+            errors.onError(previousErrors.get(i));
+        }
+        recordCheckpoint(program, block, output);
+        return true;
+    }
+
+    private void recordCheckpoint(CompiledProgram program, int block, OutputBuffer output) {
+        long outputIndex = output.mark();
+        if (outputIndex < 0 || checkpoints.size() != block) {
+            return;
+        }
+        checkpoints.add(new Checkpoint(program.blockIds[block], program.blockVersions[block],
+                variableManager.snapshot(), outputIndex, checkpointErrors.size()));
+    }
+
+    public ExecutionResult run(List<Block> blocks, ExecutionBudget budget) {
+        long start = System.nanoTime();
+        OutputBuffer output = new OutputBuffer();
+        List<String> errors = new ArrayList<>();
+        ExecutionResult.Status status = ExecutionResult.Status.COMPLETED;
+        String message = null;
+
+        try {
+            execute(compile(blocks), budget, output, errors::add);
+        } catch (ExecutionAbortedException e) {
+            output.append("\n⏹ ").append(e.getMessage()).append("\n");
+            status = ExecutionResult.Status.STOPPED;
+            message = e.getMessage();
+        } catch (RuntimeException e) {
+            status = ExecutionResult.Status.FAILED;
+            message = e.getMessage();
+        }
+        output.flush();
+
+        return new ExecutionResult(status, message, output.toString(),
+                new LinkedHashMap<>(variableManager.getAllVariables()), errors,
+                System.nanoTime() - start, virtualMachine.getExecutedInstructions(),
+                virtualMachine.getLastProfile());
+    }
+}
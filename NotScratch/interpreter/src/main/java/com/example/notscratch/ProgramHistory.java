@@ -0,0 +1,221 @@
+package com.example.notscratch;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+public class ProgramHistory {
+    public interface Listener {
+        void onInserted(int index, Block block);
+        void onRemoved(int index);
+        void onMoved(int from, int to);
+        void onUpdated(int index, Block block, String previousCode, String previousDescription);
+        void onReplaced();
+    }
+
+    private abstract static class Command {
+        abstract void apply(ProgramHistory history);
+        abstract void revert(ProgramHistory history);
+    }
+
+    private static final class Insert extends Command {
+        final int index;
+        final Block block;
+
+        Insert(int index, Block block) {
+            this.index = index;
+            this.block = block;
+        }
+
+        @Override
+        void apply(ProgramHistory history) {
+            history.insertAt(index, block);
+        }
+
+        @Override
+        void revert(ProgramHistory history) {
+            history.removeAt(index);
+        }
+    }
+
+    private static final class Remove extends Command {
+        final int index;
+        final Block block;
+
+        Remove(int index, Block block) {
+            this.index = index;
+            this.block = block;
+        }
+
+        @Override
+        void apply(ProgramHistory history) {
+            history.removeAt(index);
+        }
+
+        @Override
+        void revert(ProgramHistory history) {
+            history.insertAt(index, block);
+        }
+    }
+
+    private static final class Move extends Command {
+        final int from;
+        final int to;
+
+        Move(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        void apply(ProgramHistory history) {
+            history.moveAt(from, to);
+        }
+
+        @Override
+        void revert(ProgramHistory history) {
+            history.moveAt(to, from);
+        }
+    }
+
+    private static final class Edit extends Command {
+        final int index;
+        final String oldCode;
+        final String oldDescription;
+        final String newCode;
+        final String newDescription;
+
+        Edit(int index, String oldCode, String oldDescription, String newCode, String newDescription) {
+            this.index = index;
+            this.oldCode = oldCode;
+            this.oldDescription = oldDescription;
+            this.newCode = newCode;
+            this.newDescription = newDescription;
+        }
+
+        @Override
+        void apply(ProgramHistory history) {
+            history.updateAt(index, newCode, newDescription);
+        }
+
+        @Override
+        void revert(ProgramHistory history) {
+            history.updateAt(index, oldCode, oldDescription);
+        }
+    }
+
+    private static final class Clear extends Command {
+        final BlockSequence saved = new BlockSequence();
+
+        @Override
+        void apply(ProgramHistory history) {
+            history.swapWith(saved);
+        }
+
+        @Override
+        void revert(ProgramHistory history) {
+            history.swapWith(saved);
+        }
+    }
+
+    private final BlockSequence blocks;
+    private final Listener listener;
+    private final Deque<Command> undoStack = new ArrayDeque<>();
+    private final Deque<Command> redoStack = new ArrayDeque<>();
+
+    public ProgramHistory(BlockSequence blocks, Listener listener) {
+        this.blocks = blocks;
+        this.listener = listener;
+    }
+
+    public void insert(int index, Block block) {
+        execute(new Insert(index, block));
+    }
+
+    public void remove(int index) {
+        execute(new Remove(index, blocks.get(index)));
+    }
+
+    public void move(int from, int to) {
+        if (from != to) {
+            execute(new Move(from, to));
+        }
+    }
+
+    public void recordEdit(int index, String oldCode, String oldDescription) {
+        Block block = blocks.get(index);
+        Edit edit = new Edit(index, oldCode, oldDescription, block.getCode(), block.getDescription());
+        undoStack.push(edit);
+        redoStack.clear();
+        listener.onUpdated(index, block, oldCode, oldDescription);
+    }
+
+    public void clear() {
+        if (!blocks.isEmpty()) {
+            execute(new Clear());
+        }
+    }
+
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    public void undo() {
+        if (canUndo()) {
+            Command command = undoStack.pop();
+            command.revert(this);
+            redoStack.push(command);
+        }
+    }
+
+    public void redo() {
+        if (canRedo()) {
+            Command command = redoStack.pop();
+            command.apply(this);
+            undoStack.push(command);
+        }
+    }
+
+    public void reset() {
+        undoStack.clear();
+        redoStack.clear();
+    }
+
+    private void execute(Command command) {
+        command.apply(this);
+        undoStack.push(command);
+        redoStack.clear();
+    }
+
+    private void insertAt(int index, Block block) {
+        blocks.add(index, block);
+        listener.onInserted(index, block);
+    }
+
+    private void removeAt(int index) {
+        blocks.remove(index);
+        listener.onRemoved(index);
+    }
+
+    private void moveAt(int from, int to) {
+        blocks.move(from, to);
+        listener.onMoved(from, to);
+    }
+
+    private void updateAt(int index, String code, String description) {
+        Block block = blocks.get(index);
+        String previousCode = block.getCode();
+        String previousDescription = block.getDescription();
+        block.setCode(code);
+        block.setDescription(description);
+        listener.onUpdated(index, block, previousCode, previousDescription);
+    }
+
+    private void swapWith(BlockSequence saved) {
+        blocks.swap(saved);
+        listener.onReplaced();
+    }
+}
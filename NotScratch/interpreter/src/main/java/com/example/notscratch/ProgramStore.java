@@ -0,0 +1,333 @@
+package com.example.notscratch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProgramStore implements Closeable {
+    private static final int MAGIC = 0x4E535042;
+    static final int FORMAT_VERSION = 1;
+    static final int FRAGMENT_VERSION = 3;
+    private static final int MIN_COMPACTION_RECORDS = 256;
+
+    private static final int OP_INSERT = 1;
+    private static final int OP_UPDATE = 2;
+    private static final int OP_REMOVE = 3;
+    private static final int OP_MOVE = 4;
+    private static final int OP_CLEAR = 5;
+
+    private static final int FLAG_FRAGMENT = 1;
+
+    private final File file;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private FileOutputStream journal;
+    private int blockCount;
+    private int journalRecords;
+
+    public ProgramStore(File file) {
+        this.file = file;
+    }
+
+    public BlockSequence load(SymbolTable symbols) throws IOException {
+        BlockSequence blocks = new BlockSequence();
+        journalRecords = 0;
+        if (!file.exists()) {
+            compact(blocks);
+            return blocks;
+        }
+
+        long validLength;
+        try (CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            DataInputStream in = new DataInputStream(counter);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Файл не является программой NotScratch");
+            }
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Неподдерживаемая версия файла программы: " + formatVersion);
+            }
+            boolean fragmentsUsable = in.readInt() == FRAGMENT_VERSION;
+
+            int count = readVarInt(in);
+            List<Block> snapshot = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                snapshot.add(readBlock(in, symbols, fragmentsUsable));
+            }
+            blocks = new BlockSequence(snapshot);
+            validLength = counter.count;
+
+            while (true) {
+                int op = in.read();
+                if (op < 0) {
+                    break;
+                }
+                try {
+                    replay(op, in, blocks);
+                } catch (EOFException e) {
+                    break;
+                }
+                validLength = counter.count;
+                journalRecords++;
+            }
+        }
+
+        if (validLength < file.length()) {
+            try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+                truncate.setLength(validLength);
+            }
+        }
+        blockCount = blocks.size();
+        return blocks;
+    }
+
+    public void insert(int index, Block block) throws IOException {
+        recordOut.writeByte(OP_INSERT);
+        writeVarInt(recordOut, index);
+        writeBlock(recordOut, block, false);
+        appendRecord();
+        blockCount++;
+    }
+
+    public void update(int index, Block block) throws IOException {
+        recordOut.writeByte(OP_UPDATE);
+        writeVarInt(recordOut, index);
+        writeString(recordOut, block.getCode());
+        writeString(recordOut, block.getDescription());
+        appendRecord();
+    }
+
+    public void remove(int index) throws IOException {
+        recordOut.writeByte(OP_REMOVE);
+        writeVarInt(recordOut, index);
+        appendRecord();
+        blockCount--;
+    }
+
+    public void move(int from, int to) throws IOException {
+        recordOut.writeByte(OP_MOVE);
+        writeVarInt(recordOut, from);
+        writeVarInt(recordOut, to);
+        appendRecord();
+    }
+
+    public void clear() throws IOException {
+        recordOut.writeByte(OP_CLEAR);
+        appendRecord();
+        blockCount = 0;
+    }
+
+    public boolean needsCompaction() {
+        return journalRecords > Math.max(MIN_COMPACTION_RECORDS, blockCount);
+    }
+
+    public void compact(List<Block> blocks) throws IOException {
+        closeJournal();
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(FRAGMENT_VERSION);
+            writeVarInt(out, blocks.size());
+            for (Block block : blocks) {
+                writeBlock(out, block, true);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Не удалось сохранить файл программы " + file);
+        }
+        blockCount = blocks.size();
+        journalRecords = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeJournal();
+    }
+
+    private void appendRecord() throws IOException {
+        if (journal == null) {
+            journal = new FileOutputStream(file, true);
+        }
+        try {
+            record.writeTo(journal);
+            journal.flush();
+        } finally {
+            record.reset();
+        }
+        journalRecords++;
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private static void replay(int op, DataInput in, BlockSequence blocks) throws IOException {
+        switch (op) {
+            case OP_INSERT: {
+                int index = readVarInt(in);
+                blocks.add(index, readBlock(in, null, false));
+                break;
+            }
+            case OP_UPDATE: {
+                Block block = blocks.get(readVarInt(in));
+                block.setCode(readString(in));
+                block.setDescription(readString(in));
+                break;
+            }
+            case OP_REMOVE:
+                blocks.remove(readVarInt(in));
+                break;
+            case OP_MOVE:
+                blocks.move(readVarInt(in), readVarInt(in));
+                break;
+            case OP_CLEAR:
+                blocks.clear();
+                break;
+            default:
+                throw new IOException("Повреждённая запись журнала: " + op);
+        }
+    }
+
+    private static void writeBlock(DataOutput out, Block block, boolean withFragment) throws IOException {
+        BlockFragment fragment = withFragment ? block.getCompiledFragment() : null;
+        if (fragment != null && fragment.version != block.getVersion()) {
+            fragment = null;
+        }
+
+        out.writeByte(block.getType().ordinal());
+        writeString(out, block.getCode());
+        writeString(out, block.getDescription());
+        out.writeByte(fragment != null ? FLAG_FRAGMENT : 0);
+        if (fragment != null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            fragment.write(new DataOutputStream(bytes));
+            writeVarInt(out, bytes.size());
+            out.write(bytes.toByteArray());
+        }
+    }
+
+    private static Block readBlock(DataInput in, SymbolTable symbols, boolean fragmentsUsable) throws IOException {
+        int typeIndex = in.readUnsignedByte();
+        BlockType[] types = BlockType.values();
+        if (typeIndex >= types.length) {
+            throw new IOException("Неизвестный тип блока: " + typeIndex);
+        }
+        Block block = new Block(types[typeIndex], readString(in), readString(in));
+
+        int flags = in.readUnsignedByte();
+        if ((flags & FLAG_FRAGMENT) != 0) {
+            int length = readVarInt(in);
+            if (fragmentsUsable && symbols != null) {
+                block.setCompiledFragment(BlockFragment.read(in, symbols, block.getVersion()));
+            } else {
+                in.skipBytes(length);
+            }
+        }
+        return block;
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int zigzag = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Некорректное число в файле программы");
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeInts(DataOutput out, int[] values) throws IOException {
+        writeVarInt(out, values.length);
+        for (int value : values) {
+            writeVarInt(out, value);
+        }
+    }
+
+    static int[] readInts(DataInput in) throws IOException {
+        int[] values = new int[readVarInt(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readVarInt(in);
+        }
+        return values;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
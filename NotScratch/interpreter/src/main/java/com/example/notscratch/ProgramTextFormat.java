@@ -0,0 +1,98 @@
+package com.example.notscratch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ProgramTextFormat {
+    private static final char BLOCK_MARKER = '@';
+    private static final char COMMENT_MARKER = '#';
+
+    private ProgramTextFormat() {
+    }
+
+    public static List<Block> read(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    public static List<Block> parse(String text) {
+        try {
+            return parse(new StringReader(text));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static List<Block> parse(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<Block> blocks = new ArrayList<>();
+        BlockType type = null;
+        String description = "";
+        StringBuilder code = new StringBuilder();
+        int lineNumber = 0;
+
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                if (type != null) {
+                    code.append('\n');
+                }
+                continue;
+            }
+            if (trimmed.charAt(0) == COMMENT_MARKER) {
+                continue;
+            }
+
+            if (trimmed.charAt(0) == BLOCK_MARKER) {
+                if (type != null) {
+                    blocks.add(new Block(type, code.toString().trim(), description));
+                }
+                String[] header = trimmed.substring(1).trim().split("\\s+", 2);
+                type = blockType(header[0], lineNumber);
+                description = header.length > 1 ? header[1] : "";
+                code.setLength(0);
+            } else if (type == null) {
+                throw new RuntimeException("Строка " + lineNumber + ": код вне блока");
+            } else {
+                code.append(line).append('\n');
+            }
+        }
+
+        if (type != null) {
+            blocks.add(new Block(type, code.toString().trim(), description));
+        }
+        return blocks;
+    }
+
+    public static String format(List<Block> blocks) {
+        StringBuilder result = new StringBuilder();
+        for (Block block : blocks) {
+            result.append(BLOCK_MARKER).append(block.getType().name());
+            if (!block.getDescription().isEmpty()) {
+                result.append(' ').append(block.getDescription());
+            }
+            result.append('\n').append(block.getCode()).append("\n\n");
+        }
+        return result.toString();
+    }
+
+    private static BlockType blockType(String name, int lineNumber) {
+        for (BlockType type : BlockType.values()) {
+            if (type.name().equals(name)) {
+                return type;
+            }
+        }
+        throw new RuntimeException("Строка " + lineNumber + ": неизвестный тип блока '" + name + "'");
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.notscratch;
+
+import java.util.List;
+
+abstract class Statement {
+    final int position;
+
+    Statement(int position) {
+        this.position = position;
+    }
+
+    static final class Simple extends Statement {
+        final String text;
+
+        Simple(int position, String text) {
+            super(position);
+            this.text = text;
+        }
+
+        boolean isAssignment() {
+            return text.contains("=");
+        }
+    }
+
+    static final class If extends Statement {
+        final List<String> conditions;
+        final List<List<Statement>> branches;
+        final List<Statement> elseBranch;
+
+        If(int position, List<String> conditions, List<List<Statement>> branches, List<Statement> elseBranch) {
+            super(position);
+            this.conditions = conditions;
+            this.branches = branches;
+            this.elseBranch = elseBranch;
+        }
+    }
+
+    static final class While extends Statement {
+        final String condition;
+        final List<Statement> body;
+
+        While(int position, String condition, List<Statement> body) {
+            super(position);
+            this.condition = condition;
+            this.body = body;
+        }
+    }
+
+    static final class For extends Statement {
+        final String init;
+        final String condition;
+        final String increment;
+        final List<Statement> body;
+
+        For(int position, String init, String condition, String increment, List<Statement> body) {
+            super(position);
+            this.init = init;
+            this.condition = condition;
+            this.increment = increment;
+            this.body = body;
+        }
+    }
+}
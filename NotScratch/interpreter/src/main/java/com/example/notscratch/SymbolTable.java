@@ -0,0 +1,49 @@
+package com.example.notscratch;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SymbolTable {
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private volatile int size;
+
+    public int slotOf(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (this) {
+            slot = slots.get(name);
+            if (slot == null) {
+                slot = size;
+                String[] current = names;
+                if (slot == current.length) {
+                    current = Arrays.copyOf(current, slot * 2);
+                }
+                current[slot] = name;
+                names = current;
+                size = slot + 1;
+                slots.put(name, slot);
+            }
+            return slot;
+        }
+    }
+
+    public int find(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    public String nameOf(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Index: " + slot + ", Size: " + size);
+        }
+        return names[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,590 @@
+package com.example.notscratch;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VariableManager {
+    static final int UNDECLARED = 0;
+    static final int INT = 1;
+    static final int LONG = 2;
+    static final int DOUBLE = 3;
+    static final int ARRAY = 4;
+
+    private static final String[] TYPE_NAMES = { "", "int", "long", "double", "int[]" };
+    private static final int DESCRIBED_ELEMENTS = 10;
+    private static final AtomicInteger TYPE_EPOCHS = new AtomicInteger();
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final SymbolTable symbols;
+    private int[] values = new int[16];
+    private long[] wideValues = new long[16];
+    private byte[] kinds = new byte[16];
+    private int[][] arrays = new int[16][];
+    private long arrayBytes;
+    private int[] declarationOrder = new int[16];
+    private int declaredCount;
+    private int typeEpoch;
+    private int sharedDeclarations;
+    private int[] arrayOwners = new int[16];
+    private int ownerGeneration = 1;
+    private boolean[] dirtyChunks = new boolean[1];
+    private int[] dirtyList = new int[1];
+    private int dirtyCount;
+    private Snapshot base;
+    private final Map<String, Object> variablesView = new VariablesView();
+
+    static final class Snapshot {
+        private final int[][] values;
+        private final long[][] wideValues;
+        private final byte[][] kinds;
+        private final int[][][] arrays;
+        private final long arrayBytes;
+        private final int[] declarationOrder;
+        private final int declaredCount;
+        private final int typeEpoch;
+
+        private Snapshot(int[][] values, long[][] wideValues, byte[][] kinds, int[][][] arrays,
+                         VariableManager variables) {
+            this.values = values;
+            this.wideValues = wideValues;
+            this.kinds = kinds;
+            this.arrays = arrays;
+            this.arrayBytes = variables.arrayBytes;
+            this.declarationOrder = variables.declarationOrder;
+            this.declaredCount = variables.declaredCount;
+            this.typeEpoch = variables.typeEpoch;
+        }
+
+        private boolean stores(int slot) {
+            int chunk = slot >>> CHUNK_SHIFT;
+            return chunk < kinds.length && kinds[chunk] != null;
+        }
+
+        int kindOf(int slot) {
+            return stores(slot) ? kinds[slot >>> CHUNK_SHIFT][slot & (CHUNK_SIZE - 1)] : UNDECLARED;
+        }
+
+        int valueOf(int slot) {
+            return stores(slot) ? values[slot >>> CHUNK_SHIFT][slot & (CHUNK_SIZE - 1)] : 0;
+        }
+
+        long wideValueOf(int slot) {
+            return stores(slot) ? wideValues[slot >>> CHUNK_SHIFT][slot & (CHUNK_SIZE - 1)] : 0;
+        }
+
+        int[] arrayOf(int slot) {
+            return stores(slot) ? arrays[slot >>> CHUNK_SHIFT][slot & (CHUNK_SIZE - 1)] : null;
+        }
+    }
+
+    public VariableManager() {
+        this(new SymbolTable());
+    }
+
+    public VariableManager(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    static int declaredKind(String declaration) {
+        String trimmed = declaration.trim();
+        if (trimmed.startsWith(TYPE_NAMES[ARRAY])) {
+            return ARRAY;
+        }
+        for (int kind = LONG; kind <= DOUBLE; kind++) {
+            String name = TYPE_NAMES[kind];
+            if (trimmed.startsWith(name) && trimmed.length() > name.length() &&
+                    Character.isWhitespace(trimmed.charAt(name.length()))) {
+                return kind;
+            }
+        }
+        return INT;
+    }
+
+    static String typeName(int kind) {
+        return TYPE_NAMES[kind];
+    }
+
+    public static String describe(Object value) {
+        if (!(value instanceof int[])) {
+            return String.valueOf(value);
+        }
+        int[] array = (int[]) value;
+        StringBuilder text = new StringBuilder("int[").append(array.length).append("] {");
+        int shown = Math.min(array.length, DESCRIBED_ELEMENTS);
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(array[i]);
+        }
+        if (shown < array.length) {
+            text.append(", …");
+        }
+        return text.append('}').toString();
+    }
+
+    public void declareVariable(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new RuntimeException("Имя переменной не может быть пустым");
+        }
+        declareVariable(symbols.slotOf(name));
+    }
+
+    public void declareVariable(int slot) {
+        declareVariable(slot, INT);
+    }
+
+    void declareVariable(int slot, int kind) {
+        if (slot < kinds.length && kinds[slot] != UNDECLARED) {
+            throw new RuntimeException("Переменная '" + symbols.nameOf(slot) + "' уже объявлена");
+        }
+        ensureCapacity(slot + 1);
+        kinds[slot] = (byte) kind;
+        values[slot] = 0;
+        wideValues[slot] = 0;
+        touch(slot);
+        if (kind == LONG || kind == DOUBLE) {
+            typeEpoch = TYPE_EPOCHS.incrementAndGet();
+        }
+        if (declaredCount < sharedDeclarations) {
+            declarationOrder = declarationOrder.clone();
+            sharedDeclarations = 0;
+        }
+        if (declaredCount == declarationOrder.length) {
+            declarationOrder = Arrays.copyOf(declarationOrder, declaredCount * 2);
+        }
+        declarationOrder[declaredCount++] = slot;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= kinds.length) {
+            return;
+        }
+        int capacity = (Math.max(kinds.length * 2, size) + CHUNK_SIZE - 1) & -CHUNK_SIZE;
+        values = Arrays.copyOf(values, capacity);
+        wideValues = Arrays.copyOf(wideValues, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        arrays = Arrays.copyOf(arrays, capacity);
+        arrayOwners = Arrays.copyOf(arrayOwners, capacity);
+        dirtyChunks = Arrays.copyOf(dirtyChunks, capacity >>> CHUNK_SHIFT);
+        dirtyList = Arrays.copyOf(dirtyList, capacity >>> CHUNK_SHIFT);
+    }
+
+    void declareArray(int slot, int length) {
+        if (length < 0) {
+            throw new RuntimeException("Некорректный размер массива: " + length);
+        }
+        declareVariable(slot, ARRAY);
+        arrays[slot] = new int[length];
+        touch(slot);
+        arrayOwners[slot] = ownerGeneration;
+        arrayBytes += (long) length * Integer.BYTES;
+    }
+
+    int getTypeEpoch() {
+        return typeEpoch;
+    }
+
+    int kindOf(int slot) {
+        return slot < kinds.length ? kinds[slot] : UNDECLARED;
+    }
+
+    int scalarKindOf(int slot) {
+        int kind = kindOf(slot);
+        return kind == LONG || kind == DOUBLE ? kind : INT;
+    }
+
+    public void setVariable(String name, int value) {
+        int slot = symbols.find(name);
+        if (slot < 0) {
+            throw new RuntimeException("Переменная '" + name + "' не была объявлена");
+        }
+        setVariable(slot, value);
+    }
+
+    public void setVariable(int slot, int value) {
+        if (slot >= kinds.length || kinds[slot] != INT) {
+            setLong(slot, value);
+            return;
+        }
+        values[slot] = value;
+        if (!dirtyChunks[slot >>> CHUNK_SHIFT]) {
+            touch(slot);
+        }
+    }
+
+    void setLong(int slot, long value) {
+        switch (kindOf(slot)) {
+            case LONG:
+                wideValues[slot] = value;
+                touch(slot);
+                break;
+            case DOUBLE:
+                wideValues[slot] = Double.doubleToRawLongBits(value);
+                touch(slot);
+                break;
+            case INT:
+                throw narrowing(slot, LONG);
+            case ARRAY:
+                throw new RuntimeException("Нельзя присвоить число массиву '" + symbols.nameOf(slot) + "'");
+            default:
+                throw new RuntimeException("Переменная '" + symbols.nameOf(slot) + "' не была объявлена");
+        }
+    }
+
+    void setDouble(int slot, double value) {
+        switch (kindOf(slot)) {
+            case DOUBLE:
+                wideValues[slot] = Double.doubleToRawLongBits(value);
+                touch(slot);
+                break;
+            case INT:
+            case LONG:
+                throw narrowing(slot, DOUBLE);
+            case ARRAY:
+                throw new RuntimeException("Нельзя присвоить число массиву '" + symbols.nameOf(slot) + "'");
+            default:
+                throw new RuntimeException("Переменная '" + symbols.nameOf(slot) + "' не была объявлена");
+        }
+    }
+
+    public int getVariable(String name) {
+        int slot = symbols.find(name);
+        if (slot < 0) {
+            throw new RuntimeException("Использование необъявленной переменной '" + name + "'");
+        }
+        return getVariable(slot);
+    }
+
+    public int getVariable(int slot) {
+        if (slot >= kinds.length || kinds[slot] != INT) {
+            throw notInt(slot);
+        }
+        return values[slot];
+    }
+
+    long getLong(int slot) {
+        switch (kindOf(slot)) {
+            case INT: return values[slot];
+            case LONG: return wideValues[slot];
+            default: throw notInt(slot);
+        }
+    }
+
+    double getDouble(int slot) {
+        switch (kindOf(slot)) {
+            case INT: return values[slot];
+            case LONG: return wideValues[slot];
+            case DOUBLE: return Double.longBitsToDouble(wideValues[slot]);
+            default: throw notInt(slot);
+        }
+    }
+
+    int getElement(int slot, int index) {
+        int[] array = array(slot);
+        if (index < 0 || index >= array.length) {
+            throw outOfBounds(slot, index, array.length);
+        }
+        return array[index];
+    }
+
+    void setElement(int slot, int index, int value) {
+        int[] array = mutableArray(slot);
+        if (index < 0 || index >= array.length) {
+            throw outOfBounds(slot, index, array.length);
+        }
+        array[index] = value;
+    }
+
+    int arrayLength(int slot) {
+        return array(slot).length;
+    }
+
+    long sumArray(int slot) {
+        long sum = 0;
+        for (int value : array(slot)) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    void fillArray(int slot, int value) {
+        Arrays.fill(mutableArray(slot), value);
+    }
+
+    void sortArray(int slot) {
+        Arrays.sort(mutableArray(slot));
+    }
+
+    void copyArray(int source, int sourceIndex, int target, int targetIndex, int length) {
+        int[] from = array(source);
+        int[] to = mutableArray(target);
+        if (length < 0) {
+            throw new RuntimeException("Некорректная длина копирования: " + length);
+        }
+        checkRange(source, from, sourceIndex, length);
+        checkRange(target, to, targetIndex, length);
+        System.arraycopy(from, sourceIndex, to, targetIndex, length);
+    }
+
+    public boolean hasVariable(String name) {
+        int slot = symbols.find(name);
+        return slot >= 0 && kindOf(slot) != UNDECLARED;
+    }
+
+    public void clear() {
+        for (int i = 0; i < declaredCount; i++) {
+            int slot = declarationOrder[i];
+            kinds[slot] = UNDECLARED;
+            values[slot] = 0;
+            wideValues[slot] = 0;
+            arrays[slot] = null;
+            touch(slot);
+        }
+        if (sharedDeclarations > 0) {
+            declarationOrder = new int[declarationOrder.length];
+            sharedDeclarations = 0;
+        }
+        declaredCount = 0;
+        arrayBytes = 0;
+        typeEpoch = 0;
+    }
+
+    public void restore(Map<String, Object> variables) {
+        clear();
+        for (Map.Entry<String, Object> entry : variables.entrySet()) {
+            int slot = symbols.slotOf(entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof int[]) {
+                int[] array = (int[]) value;
+                declareArray(slot, array.length);
+                System.arraycopy(array, 0, arrays[slot], 0, array.length);
+            } else if (value instanceof Double) {
+                declareVariable(slot, DOUBLE);
+                setDouble(slot, (Double) value);
+            } else if (value instanceof Long) {
+                declareVariable(slot, LONG);
+                setLong(slot, (Long) value);
+            } else {
+                declareVariable(slot);
+                setVariable(slot, (Integer) value);
+            }
+        }
+    }
+
+    Snapshot snapshot() {
+        int chunks = kinds.length >>> CHUNK_SHIFT;
+        int[][] valueChunks = base != null ? Arrays.copyOf(base.values, chunks) : new int[chunks][];
+        long[][] wideChunks = base != null ? Arrays.copyOf(base.wideValues, chunks) : new long[chunks][];
+        byte[][] kindChunks = base != null ? Arrays.copyOf(base.kinds, chunks) : new byte[chunks][];
+        int[][][] arrayChunks = base != null ? Arrays.copyOf(base.arrays, chunks) : new int[chunks][][];
+        for (int i = 0; i < dirtyCount; i++) {
+            int chunk = dirtyList[i];
+            int from = chunk << CHUNK_SHIFT;
+            valueChunks[chunk] = Arrays.copyOfRange(values, from, from + CHUNK_SIZE);
+            wideChunks[chunk] = Arrays.copyOfRange(wideValues, from, from + CHUNK_SIZE);
+            kindChunks[chunk] = Arrays.copyOfRange(kinds, from, from + CHUNK_SIZE);
+            arrayChunks[chunk] = Arrays.copyOfRange(arrays, from, from + CHUNK_SIZE);
+            dirtyChunks[chunk] = false;
+        }
+        dirtyCount = 0;
+        sharedDeclarations = Math.max(sharedDeclarations, declaredCount);
+        ownerGeneration++;
+        base = new Snapshot(valueChunks, wideChunks, kindChunks, arrayChunks, this);
+        return base;
+    }
+
+    void restore(Snapshot snapshot) {
+        ensureCapacity(snapshot.kinds.length << CHUNK_SHIFT);
+        int chunks = kinds.length >>> CHUNK_SHIFT;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            byte[] target = chunk < snapshot.kinds.length ? snapshot.kinds[chunk] : null;
+            byte[] current = base != null && chunk < base.kinds.length ? base.kinds[chunk] : null;
+            if (dirtyChunks[chunk] || target != current) {
+                restoreChunk(snapshot, chunk, target != null);
+            }
+        }
+        dirtyCount = 0;
+        arrayBytes = snapshot.arrayBytes;
+        declarationOrder = snapshot.declarationOrder;
+        declaredCount = snapshot.declaredCount;
+        sharedDeclarations = declarationOrder.length;
+        typeEpoch = snapshot.typeEpoch;
+        ownerGeneration++;
+        base = snapshot;
+    }
+
+    private void restoreChunk(Snapshot snapshot, int chunk, boolean stored) {
+        int from = chunk << CHUNK_SHIFT;
+        if (stored) {
+            System.arraycopy(snapshot.values[chunk], 0, values, from, CHUNK_SIZE);
+            System.arraycopy(snapshot.wideValues[chunk], 0, wideValues, from, CHUNK_SIZE);
+            System.arraycopy(snapshot.kinds[chunk], 0, kinds, from, CHUNK_SIZE);
+            System.arraycopy(snapshot.arrays[chunk], 0, arrays, from, CHUNK_SIZE);
+        } else {
+            Arrays.fill(values, from, from + CHUNK_SIZE, 0);
+            Arrays.fill(wideValues, from, from + CHUNK_SIZE, 0);
+            Arrays.fill(kinds, from, from + CHUNK_SIZE, (byte) UNDECLARED);
+            Arrays.fill(arrays, from, from + CHUNK_SIZE, null);
+        }
+        dirtyChunks[chunk] = false;
+    }
+
+    void copyState(Snapshot snapshot, int[] slots) {
+        for (int i = 0; i < snapshot.declaredCount; i++) {
+            int slot = snapshot.declarationOrder[i];
+            if (kindOf(slot) == UNDECLARED && Arrays.binarySearch(slots, slot) >= 0) {
+                declareVariable(slot, snapshot.kindOf(slot));
+            }
+        }
+        for (int slot : slots) {
+            switch (kindOf(slot)) {
+                case INT:
+                    values[slot] = snapshot.valueOf(slot);
+                    break;
+                case LONG:
+                case DOUBLE:
+                    wideValues[slot] = snapshot.wideValueOf(slot);
+                    break;
+                case ARRAY:
+                    if (arrays[slot] != null) {
+                        arrayBytes -= (long) arrays[slot].length * Integer.BYTES;
+                    }
+                    arrays[slot] = snapshot.arrayOf(slot);
+                    arrayBytes += (long) arrays[slot].length * Integer.BYTES;
+                    arrayOwners[slot] = 0;
+                    break;
+                default:
+                    continue;
+            }
+            touch(slot);
+        }
+    }
+
+    public long estimateMemoryBytes() {
+        return (long) values.length * (Integer.BYTES + Long.BYTES + 1) +
+                (long) declarationOrder.length * Integer.BYTES + arrayBytes;
+    }
+
+    public Map<String, Object> getAllVariables() {
+        return variablesView;
+    }
+
+    private Object valueOf(int slot) {
+        switch (kinds[slot]) {
+            case LONG: return wideValues[slot];
+            case DOUBLE: return Double.longBitsToDouble(wideValues[slot]);
+            case ARRAY: return arrays[slot];
+            default: return values[slot];
+        }
+    }
+
+    private int[] array(int slot) {
+        int kind = kindOf(slot);
+        if (kind != ARRAY) {
+            throw kind == UNDECLARED ? notInt(slot) :
+                    new RuntimeException("Переменная '" + symbols.nameOf(slot) + "' не является массивом");
+        }
+        return arrays[slot];
+    }
+
+    private int[] mutableArray(int slot) {
+        int[] array = array(slot);
+        if (arrayOwners[slot] != ownerGeneration) {
+            array = array.clone();
+            arrays[slot] = array;
+            arrayOwners[slot] = ownerGeneration;
+            touch(slot);
+        }
+        return array;
+    }
+
+    private void touch(int slot) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        if (!dirtyChunks[chunk]) {
+            dirtyChunks[chunk] = true;
+            dirtyList[dirtyCount++] = chunk;
+        }
+    }
+
+    private void checkRange(int slot, int[] array, int index, int length) {
+        if (index < 0 || (long) index + length > array.length) {
+            throw new RuntimeException("Диапазон [" + index + ", " + ((long) index + length) +
+                    ") выходит за границы массива '" + symbols.nameOf(slot) + "' длины " + array.length);
+        }
+    }
+
+    private RuntimeException outOfBounds(int slot, int index, int length) {
+        return new RuntimeException("Индекс " + index + " вне границ массива '" + symbols.nameOf(slot) +
+                "' длины " + length);
+    }
+
+    private RuntimeException notInt(int slot) {
+        int kind = kindOf(slot);
+        if (kind == UNDECLARED) {
+            return new RuntimeException("Использование необъявленной переменной '" + symbols.nameOf(slot) + "'");
+        }
+        return new RuntimeException("Переменная '" + symbols.nameOf(slot) + "' имеет тип " + TYPE_NAMES[kind]);
+    }
+
+    private RuntimeException narrowing(int slot, int valueKind) {
+        return new RuntimeException("Нельзя присвоить значение типа " + TYPE_NAMES[valueKind] +
+                " переменной '" + symbols.nameOf(slot) + "' типа " + TYPE_NAMES[kinds[slot]]);
+    }
+
+    private final class VariablesView extends AbstractMap<String, Object> {
+        private final Set<Map.Entry<String, Object>> entries = new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new Iterator<Map.Entry<String, Object>>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < declaredCount;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (index >= declaredCount) {
+                            throw new NoSuchElementException();
+                        }
+                        int slot = declarationOrder[index++];
+                        return new SimpleImmutableEntry<>(symbols.nameOf(slot), valueOf(slot));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return declaredCount;
+            }
+        };
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return entries;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && hasVariable((String) key);
+        }
+
+        @Override
+        public Object get(Object key) {
+            return containsKey(key) ? valueOf(symbols.find((String) key)) : null;
+        }
+    }
+}
@@ -0,0 +1,724 @@
+package com.example.notscratch;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class VirtualMachine {
+    private static final int CHECK_INTERVAL = 4096;
+    private static final int REPORTED_CONSUMERS = 3;
+
+    public interface OnErrorListener {
+        void onError(String message);
+    }
+
+    interface BlockListener {
+        int onBlockFinished(int block);
+    }
+
+    private final VariableManager variableManager;
+    private final ExpressionEvaluator expressionEvaluator;
+    private volatile int progressBlock = -1;
+    private volatile long progressIterations;
+    private long executedInstructions;
+
+    private CompiledProgram program;
+    private ExecutionBudget budget;
+    private OutputBuffer output;
+    private Debugger debugger;
+    private long startNanos;
+    private long granted;
+    private long[] blockInstructions;
+    private long[] blockNanos;
+    private long[] blockEvaluations;
+    private long[] blockIterations;
+    private long blockStartInstructions;
+    private long blockStartNanos;
+    private long blockStartEvaluations;
+    private long blockStartIterations;
+    private long evaluations;
+    private volatile ExecutionProfile lastProfile;
+
+    public VirtualMachine(VariableManager variableManager, ExpressionEvaluator expressionEvaluator) {
+        this.variableManager = variableManager;
+        this.expressionEvaluator = expressionEvaluator;
+    }
+
+    public void run(CompiledProgram program, ExecutionBudget budget, OutputBuffer output,
+                    OnErrorListener errorListener) {
+        run(program, budget, output, errorListener, null);
+    }
+
+    public void run(CompiledProgram program, ExecutionBudget budget, OutputBuffer output,
+                    OnErrorListener errorListener, Debugger debugger) {
+        run(program, 0, budget, output, errorListener, debugger, null);
+    }
+
+    void run(CompiledProgram program, int firstBlock, ExecutionBudget budget, OutputBuffer output,
+             OnErrorListener errorListener, Debugger debugger, BlockListener blockListener) {
+        this.program = program;
+        this.budget = budget;
+        this.output = output;
+        this.debugger = debugger;
+        if (debugger != null) {
+            debugger.reset();
+        }
+        startNanos = System.nanoTime();
+        granted = Math.min(CHECK_INTERVAL, budget.getMaxInstructions());
+        blockInstructions = new long[program.getBlockCount()];
+        blockNanos = new long[program.getBlockCount()];
+        blockEvaluations = new long[program.getBlockCount()];
+        blockIterations = new long[program.getBlockCount()];
+        ExecutionProfile previous = lastProfile;
+        carryProfile(previous, 0, firstBlock);
+        blockStartInstructions = 0;
+        blockStartNanos = startNanos;
+        blockStartEvaluations = 0;
+        blockStartIterations = 0;
+        evaluations = 0;
+        progressBlock = -1;
+        progressIterations = 0;
+        executedInstructions = 0;
+        expressionEvaluator.resetCache(program.cacheRegisterCount);
+
+        int[] code = program.code;
+        int[] iterations = new int[program.loopCount];
+        int[] counters = new int[program.loopCount];
+        int[] bounds = new int[program.loopCount];
+        boolean[] counted = new boolean[program.loopCount];
+        int pc = firstBlock < program.getBlockCount() ? program.blockStarts[firstBlock] : code.length;
+        int block = -1;
+        int reported = -1;
+        int fuel = (int) granted;
+        long totalIterations = 0;
+
+        try {
+            while (pc < code.length) {
+                try {
+                    int acc = 0;
+                    String wideAcc = null;
+                    boolean flag = false;
+
+                    while (pc < code.length) {
+                        if (--fuel < 0) {
+                            progressIterations = totalIterations;
+                            fuel = refuel(block);
+                        }
+
+                        switch (code[pc]) {
+                            case CompiledProgram.OP_BLOCK:
+                                attributeBlock(block, granted - fuel, totalIterations);
+                                if (block >= 0 && block != reported && blockListener != null) {
+                                    reported = block;
+                                    int next = blockListener.onBlockFinished(block);
+                                    if (next != code[pc + 1]) {
+                                        carryProfile(previous, code[pc + 1], next);
+                                        pc = next < program.getBlockCount() ? program.blockStarts[next] : code.length;
+                                        break;
+                                    }
+                                }
+                                block = code[pc + 1];
+                                progressBlock = block;
+                                output.append(program.strings[code[pc + 2]]);
+                                pc += 3;
+                                break;
+                            case CompiledProgram.OP_END_BLOCK:
+                                output.append("\n");
+                                pc += 1;
+                                break;
+                            case CompiledProgram.OP_PRINT:
+                                output.append(program.strings[code[pc + 1]]);
+                                pc += 2;
+                                break;
+                            case CompiledProgram.OP_FAIL:
+                                throw new RuntimeException(program.strings[code[pc + 1]]);
+                            case CompiledProgram.OP_DECLARE:
+                                variableManager.declareVariable(code[pc + 1]);
+                                pc += 2;
+                                break;
+                            case CompiledProgram.OP_DECLARE_WIDE:
+                                variableManager.declareVariable(code[pc + 1], code[pc + 2]);
+                                pc += 3;
+                                break;
+                            case CompiledProgram.OP_NEW_ARRAY:
+                                newArray(block, granted - fuel, code[pc + 1], code[pc + 2]);
+                                pc += 3;
+                                break;
+                            case CompiledProgram.OP_STORE_ELEMENT:
+                                try {
+                                    storeElement(code[pc + 1], code[pc + 2], code[pc + 3]);
+                                } catch (RuntimeException e) {
+                                    if (code[pc + 4] >= 0) {
+                                        traceError(program.strings[code[pc + 4]], e);
+                                    }
+                                    throw e;
+                                }
+                                pc += 5;
+                                break;
+                            case CompiledProgram.OP_ARRAY_CALL:
+                                try {
+                                    arrayCall(code[pc + 1], code[pc + 2], code[pc + 3], code[pc + 4], code[pc + 5],
+                                            code[pc + 6]);
+                                } catch (RuntimeException e) {
+                                    if (code[pc + 7] >= 0) {
+                                        traceError(program.strings[code[pc + 7]], e);
+                                    }
+                                    throw e;
+                                }
+                                pc += 8;
+                                break;
+                            case CompiledProgram.OP_ASSIGN:
+                                assign(code[pc + 1], code[pc + 2]);
+                                pc += 3;
+                                break;
+                            case CompiledProgram.OP_ASSIGN_TRACE:
+                                try {
+                                    assign(code[pc + 1], code[pc + 2]);
+                                } catch (RuntimeException e) {
+                                    traceError(program.strings[code[pc + 4]], e);
+                                    throw e;
+                                }
+                                output.append(program.strings[code[pc + 3]]);
+                                pc += 5;
+                                break;
+                            case CompiledProgram.OP_EVAL: {
+                                evaluations++;
+                                CompiledExpression expression = program.expressions[code[pc + 1]];
+                                if (expressionEvaluator.typeOf(expression) == VariableManager.INT) {
+                                    acc = expressionEvaluator.evaluate(expression);
+                                    wideAcc = null;
+                                } else {
+                                    wideAcc = evaluateWide(expression);
+                                }
+                                pc += 2;
+                                break;
+                            }
+                            case CompiledProgram.OP_EVAL_TRACE: {
+                                evaluations++;
+                                CompiledExpression expression = program.expressions[code[pc + 1]];
+                                try {
+                                    if (expressionEvaluator.typeOf(expression) == VariableManager.INT) {
+                                        acc = expressionEvaluator.evaluate(expression);
+                                        wideAcc = null;
+                                    } else {
+                                        wideAcc = evaluateWide(expression);
+                                    }
+                                } catch (RuntimeException e) {
+                                    traceError(program.strings[code[pc + 3]], e);
+                                    throw e;
+                                }
+                                output.append(program.strings[code[pc + 2]]);
+                                appendAcc(acc, wideAcc);
+                                pc += 4;
+                                break;
+                            }
+                            case CompiledProgram.OP_PRINT_ACC:
+                                output.append(program.strings[code[pc + 1]]);
+                                appendAcc(acc, wideAcc);
+                                pc += 2;
+                                break;
+                            case CompiledProgram.OP_TEST:
+                                flag = test(code[pc + 1], code[pc + 2], code[pc + 3]);
+                                pc += 4;
+                                break;
+                            case CompiledProgram.OP_PRINT_FLAG:
+                                output.append(program.strings[code[pc + 1]]).append(flag ? "истина" : "ложь").append("\n");
+                                pc += 2;
+                                break;
+                            case CompiledProgram.OP_JUMP:
+                                pc += code[pc + 1];
+                                break;
+                            case CompiledProgram.OP_JUMP_FALSE:
+                                pc += flag ? 2 : code[pc + 1];
+                                break;
+                            case CompiledProgram.OP_LOOP_ENTER:
+                                iterations[code[pc + 1]] = 0;
+                                expressionEvaluator.invalidateCache(code[pc + 2], code[pc + 3]);
+                                pc += 4;
+                                break;
+                            case CompiledProgram.OP_ITERATE:
+                                totalIterations++;
+                                output.append(program.strings[code[pc + 2]]).append(++iterations[code[pc + 1]])
+                                        .append(": условие ").append(program.strings[code[pc + 3]]).append(" - истина\n");
+                                pc += 4;
+                                break;
+                            case CompiledProgram.OP_ITERATE_UNCOND:
+                                totalIterations++;
+                                output.append(program.strings[code[pc + 2]]).append(++iterations[code[pc + 1]])
+                                        .append(" (безусловный цикл)\n");
+                                pc += 3;
+                                break;
+                            case CompiledProgram.OP_LOOP_EXIT:
+                                output.append(program.strings[code[pc + 2]]).append(iterations[code[pc + 1]])
+                                        .append(" итераций\n");
+                                pc += 3;
+                                break;
+                            case CompiledProgram.OP_FOR_COUNTED: {
+                                int loop = code[pc + 2];
+                                if (iterations[loop] == 0) {
+                                    counted[loop] = enterCountedLoop(code, pc, counters, bounds);
+                                    if (counted[loop] && code[pc + 7] != 0) {
+                                        long charge = closedForm(code, pc, counters[loop], bounds[loop], iterations,
+                                                budget.getMaxInstructions() - granted + fuel);
+                                        if (charge >= 0) {
+                                            long taken = Math.min(charge, fuel);
+                                            fuel -= (int) taken;
+                                            granted += charge - taken;
+                                            totalIterations += iterations[loop];
+                                            pc += code[pc + 8];
+                                            break;
+                                        }
+                                    }
+                                }
+
+                                boolean proceed;
+                                if (counted[loop]) {
+                                    proceed = compare(code[pc + 3], counters[loop], bounds[loop]);
+                                } else {
+                                    proceed = test(code[pc + 3], code[pc + 4], code[pc + 5]);
+                                }
+                                if (!proceed) {
+                                    pc += code[pc + 8];
+                                    break;
+                                }
+                                totalIterations++;
+                                output.append(program.strings[code[pc + 9]]).append(++iterations[loop])
+                                        .append(": условие ").append(program.strings[code[pc + 10]]).append(" - истина\n");
+                                pc += 11;
+                                break;
+                            }
+                            case CompiledProgram.OP_FOR_NEXT: {
+                                int loop = code[pc + 2];
+                                if (counted[loop]) {
+                                    counters[loop] += code[pc + 4];
+                                    variableManager.setVariable(code[pc + 1], counters[loop]);
+                                } else {
+                                    assign(code[pc + 1], code[pc + 3]);
+                                }
+                                pc += code[pc + 5];
+                                break;
+                            }
+                            case CompiledProgram.OP_ACCUMULATE:
+                                try {
+                                    assign(code[pc + 1], code[pc + 4]);
+                                } catch (RuntimeException e) {
+                                    traceError(program.strings[code[pc + 6]], e);
+                                    throw e;
+                                }
+                                output.append(program.strings[code[pc + 5]]);
+                                pc += 7;
+                                break;
+                            case CompiledProgram.OP_DEBUG: {
+                                int depth = code[pc + 1];
+                                long iteration = code[pc + 2] >= 0 ? iterations[code[pc + 2]] : 0;
+                                if (debugger != null && debugger.shouldPause(block, depth, iteration)) {
+                                    progressIterations = totalIterations;
+                                    pauseAt(block, depth, iteration);
+                                }
+                                pc += 3;
+                                break;
+                            }
+                            default:
+                                throw new IllegalStateException("Неизвестная инструкция: " + code[pc]);
+                        }
+                    }
+                } catch (IllegalStateException | ExecutionAbortedException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    String errorMsg = String.format("Ошибка в блоке #%d (%s): %s",
+                            block + 1, program.blockTypes[block].getDisplayName(), e.getMessage());
+                    if (errorListener != null) {
+                        errorListener.onError(errorMsg);
+                    }
+                    output.append("  ❌ ").append(errorMsg).append("\n\n");
+                    pc = program.blockEnds[block];
+                }
+            }
+            progressIterations = totalIterations;
+            if (block >= 0 && block != reported && blockListener != null) {
+                carryProfile(previous, block + 1, blockListener.onBlockFinished(block));
+            }
+        } finally {
+            executedInstructions = granted - Math.max(fuel, 0);
+            attributeBlock(block, executedInstructions, totalIterations);
+            lastProfile = new ExecutionProfile(program.blockTypes, blockNanos, blockInstructions,
+                    blockEvaluations, blockIterations);
+            this.program = null;
+            this.output = null;
+            this.debugger = null;
+        }
+    }
+
+    public int getProgressBlock() {
+        return progressBlock;
+    }
+
+    public long getProgressIterations() {
+        return progressIterations;
+    }
+
+    public long getExecutedInstructions() {
+        return executedInstructions;
+    }
+
+    public ExecutionProfile getLastProfile() {
+        return lastProfile;
+    }
+
+    private int refuel(int block) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ExecutionCancelledException();
+        }
+        if (granted >= budget.getMaxInstructions()) {
+            throw exceeded(block, granted, String.format(Locale.getDefault(),
+                    "Превышен лимит инструкций (%d)", budget.getMaxInstructions()));
+        }
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000L;
+        if (elapsedMillis > budget.getMaxMillis()) {
+            throw exceeded(block, granted, String.format(Locale.getDefault(),
+                    "Превышен лимит времени (%d мс)", budget.getMaxMillis()));
+        }
+        long memory = variableManager.estimateMemoryBytes() + output.estimateMemoryBytes();
+        if (memory > budget.getMaxMemoryBytes()) {
+            throw exceeded(block, granted, String.format(Locale.getDefault(),
+                    "Превышен лимит памяти (%d байт, использовано %d)", budget.getMaxMemoryBytes(), memory));
+        }
+
+        int slice = (int) Math.min(CHECK_INTERVAL, budget.getMaxInstructions() - granted);
+        granted += slice;
+        return slice - 1;
+    }
+
+    private void carryProfile(ExecutionProfile previous, int fromBlock, int toBlock) {
+        if (previous == null || previous.getBlockCount() < toBlock) {
+            return;
+        }
+        for (int i = fromBlock; i < toBlock; i++) {
+            blockNanos[i] = previous.getNanos(i);
+            blockInstructions[i] = previous.getInstructions(i);
+            blockEvaluations[i] = previous.getEvaluations(i);
+            blockIterations[i] = previous.getIterations(i);
+        }
+    }
+
+    private void attributeBlock(int block, long executed, long iterations) {
+        long now = System.nanoTime();
+        if (block >= 0) {
+            blockInstructions[block] += executed - blockStartInstructions;
+            blockNanos[block] += now - blockStartNanos;
+            blockEvaluations[block] += evaluations - blockStartEvaluations;
+            blockIterations[block] += iterations - blockStartIterations;
+        }
+        blockStartInstructions = executed;
+        blockStartNanos = now;
+        blockStartEvaluations = evaluations;
+        blockStartIterations = iterations;
+    }
+
+    private BudgetExceededException exceeded(int block, long executed, String reason) {
+        attributeBlock(block, executed, progressIterations);
+
+        StringBuilder report = new StringBuilder(reason);
+        report.append(String.format(Locale.getDefault(), "\nВыполнено инструкций: %d за %d мс",
+                executed, (System.nanoTime() - startNanos) / 1_000_000L));
+        report.append("\nОсновные потребители:");
+
+        boolean[] reported = new boolean[blockInstructions.length];
+        for (int n = 0; n < REPORTED_CONSUMERS; n++) {
+            int top = -1;
+            for (int i = 0; i < blockInstructions.length; i++) {
+                if (!reported[i] && blockInstructions[i] > 0 &&
+                        (top < 0 || blockInstructions[i] > blockInstructions[top])) {
+                    top = i;
+                }
+            }
+            if (top < 0) {
+                break;
+            }
+            reported[top] = true;
+            report.append(String.format(Locale.getDefault(), "\n  Блок #%d (%s): %d инструкций (%d%%)",
+                    top + 1, program.blockTypes[top].getDisplayName(), blockInstructions[top],
+                    executed > 0 ? blockInstructions[top] * 100 / executed : 0));
+        }
+        return new BudgetExceededException(report.toString());
+    }
+
+    private void pauseAt(int block, int depth, long iteration) {
+        Map<String, String> variables = new LinkedHashMap<>();
+        variableManager.getAllVariables().forEach((name, value) ->
+                variables.put(name, VariableManager.describe(value)));
+        Map<String, String> watches = new LinkedHashMap<>();
+        for (String watch : debugger.getWatches()) {
+            watches.put(watch, evaluateWatch(watch));
+        }
+
+        long pausedAt = System.nanoTime();
+        debugger.pause(new Debugger.Pause(block, program.blockTypes[block], depth, iteration, variables, watches));
+        long pausedNanos = System.nanoTime() - pausedAt;
+        startNanos += pausedNanos;
+        blockStartNanos += pausedNanos;
+    }
+
+    private String evaluateWatch(String watch) {
+        try {
+            CompiledExpression expression = expressionEvaluator.compile(watch);
+            if (expressionEvaluator.typeOf(expression) == VariableManager.INT) {
+                return Integer.toString(expressionEvaluator.evaluate(expression));
+            }
+            return evaluateWide(expression);
+        } catch (RuntimeException e) {
+            return "❌ " + e.getMessage();
+        }
+    }
+
+    private void assign(int slot, int expression) {
+        evaluations++;
+        CompiledExpression compiled = program.expressions[expression];
+        int type = expressionEvaluator.typeOf(compiled);
+        if (type == VariableManager.INT) {
+            variableManager.setVariable(slot, expressionEvaluator.evaluate(compiled));
+        } else if (type == VariableManager.LONG) {
+            variableManager.setLong(slot, expressionEvaluator.evaluateLong(compiled));
+        } else {
+            variableManager.setDouble(slot, expressionEvaluator.evaluateDouble(compiled));
+        }
+    }
+
+    private void newArray(int block, long executed, int slot, int size) {
+        evaluations++;
+        int length = expressionEvaluator.evaluate(program.expressions[size]);
+        long memory = variableManager.estimateMemoryBytes() + output.estimateMemoryBytes() +
+                (long) Math.max(length, 0) * Integer.BYTES;
+        if (memory > budget.getMaxMemoryBytes()) {
+            throw exceeded(block, executed, String.format(Locale.getDefault(),
+                    "Превышен лимит памяти (%d байт, требуется %d)", budget.getMaxMemoryBytes(), memory));
+        }
+        variableManager.declareArray(slot, length);
+    }
+
+    private void storeElement(int slot, int index, int value) {
+        evaluations += 2;
+        int position = expressionEvaluator.evaluate(program.expressions[index]);
+        CompiledExpression compiled = program.expressions[value];
+        int type = expressionEvaluator.typeOf(compiled);
+        if (type != VariableManager.INT) {
+            throw new RuntimeException("Нельзя присвоить значение типа " + VariableManager.typeName(type) +
+                    " элементу массива '" + variableManager.getSymbols().nameOf(slot) + "'");
+        }
+        variableManager.setElement(slot, position, expressionEvaluator.evaluate(compiled));
+    }
+
+    private void arrayCall(int function, int slot, int other, int first, int second, int third) {
+        switch (function) {
+            case CompiledProgram.ARRAY_FILL:
+                evaluations++;
+                variableManager.fillArray(slot, expressionEvaluator.evaluate(program.expressions[first]));
+                break;
+            case CompiledProgram.ARRAY_SORT:
+                variableManager.sortArray(slot);
+                break;
+            case CompiledProgram.ARRAY_COPY:
+                evaluations += 3;
+                variableManager.copyArray(slot, expressionEvaluator.evaluate(program.expressions[first]), other,
+                        expressionEvaluator.evaluate(program.expressions[second]),
+                        expressionEvaluator.evaluate(program.expressions[third]));
+                break;
+            default:
+                throw new IllegalStateException("Неизвестная операция с массивом: " + function);
+        }
+    }
+
+    private boolean enterCountedLoop(int[] code, int pc, int[] counters, int[] bounds) {
+        int slot = code[pc + 1];
+        CompiledExpression bound = program.expressions[code[pc + 5]];
+        if (variableManager.kindOf(slot) != VariableManager.INT ||
+                expressionEvaluator.typeOf(bound) != VariableManager.INT) {
+            return false;
+        }
+        evaluations++;
+        bounds[code[pc + 2]] = expressionEvaluator.evaluate(bound);
+        counters[code[pc + 2]] = variableManager.getVariable(slot);
+        return true;
+    }
+
+    private long closedForm(int[] code, int pc, int start, int bound, int[] iterations, long remaining) {
+        int step = code[pc + 6];
+        long count = countedIterations(code[pc + 3], start, bound, step);
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            return -1;
+        }
+        int first = pc + 11;
+        int accumulators = 0;
+        for (int at = first; code[at] == CompiledProgram.OP_ACCUMULATE; at += 7) {
+            int kind = variableManager.kindOf(code[at + 1]);
+            if (kind != VariableManager.INT && kind != VariableManager.LONG) {
+                return -1;
+            }
+            accumulators++;
+        }
+        long charge = count * (accumulators + 2);
+        if (charge > remaining) {
+            return -1;
+        }
+
+        traceClosedForm(code, pc, count, accumulators);
+        long triangle = count % 2 == 0 ? count / 2 * (count - 1) : (count - 1) / 2 * count;
+        for (int i = 0, at = first; i < accumulators; i++, at += 7) {
+            int slot = code[at + 1];
+            long sum = code[at + 2] >= 0 ? count * start + triangle * step : count * code[at + 3];
+            if (variableManager.kindOf(slot) == VariableManager.INT) {
+                variableManager.setVariable(slot, (int) (variableManager.getVariable(slot) + sum));
+            } else {
+                variableManager.setLong(slot, variableManager.getLong(slot) + sum);
+            }
+        }
+        variableManager.setVariable(code[pc + 1], (int) (start + count * step));
+        iterations[code[pc + 2]] = (int) count;
+        return charge;
+    }
+
+    private static long countedIterations(int kind, int start, int bound, int step) {
+        long count;
+        switch (kind) {
+            case CompiledProgram.TEST_LT:
+                if (step < 0) return -1;
+                count = start < bound ? ((long) bound - start + step - 1) / step : 0;
+                break;
+            case CompiledProgram.TEST_LE:
+                if (step < 0) return -1;
+                count = start <= bound ? ((long) bound - start) / step + 1 : 0;
+                break;
+            case CompiledProgram.TEST_GT:
+                if (step > 0) return -1;
+                count = start > bound ? ((long) start - bound - step - 1) / -step : 0;
+                break;
+            case CompiledProgram.TEST_GE:
+                if (step > 0) return -1;
+                count = start >= bound ? ((long) start - bound) / -step + 1 : 0;
+                break;
+            default:
+                return -1;
+        }
+        long end = start + count * step;
+        return end >= Integer.MIN_VALUE && end <= Integer.MAX_VALUE ? count : -1;
+    }
+
+    private void traceClosedForm(int[] code, int pc, long count, int accumulators) {
+        int linesPerIteration = accumulators + 1;
+        long lines = count * linesPerIteration;
+        long skipped = 0;
+        if (lines > output.getMaxLines()) {
+            skipped = (lines - output.getMaxLines()) / linesPerIteration;
+            if (!output.skipLines(skipped * linesPerIteration)) {
+                skipped = 0;
+            }
+        }
+
+        String iteration = program.strings[code[pc + 9]];
+        String condition = ": условие " + program.strings[code[pc + 10]] + " - истина\n";
+        for (long i = skipped + 1; i <= count; i++) {
+            output.append(iteration).append(i).append(condition);
+            for (int j = 0, at = pc + 11; j < accumulators; j++, at += 7) {
+                output.append(program.strings[code[at + 5]]);
+            }
+        }
+    }
+
+    private String evaluateWide(CompiledExpression expression) {
+        if (expressionEvaluator.typeOf(expression) == VariableManager.LONG) {
+            return Long.toString(expressionEvaluator.evaluateLong(expression));
+        }
+        return Double.toString(expressionEvaluator.evaluateDouble(expression));
+    }
+
+    private void appendAcc(int acc, String wideAcc) {
+        if (wideAcc != null) {
+            output.append(wideAcc).append("\n");
+        } else {
+            output.append(acc).append("\n");
+        }
+    }
+
+    private boolean test(int kind, int left, int right) {
+        if (kind == CompiledProgram.TEST_TRUE) {
+            return true;
+        }
+        evaluations++;
+        CompiledExpression leftExpression = program.expressions[left];
+        if (expressionEvaluator.typeOf(leftExpression) != VariableManager.INT) {
+            return testWide(kind, leftExpression, right);
+        }
+        int leftVal = expressionEvaluator.evaluate(leftExpression);
+        if (kind == CompiledProgram.TEST_NONZERO) {
+            return leftVal != 0;
+        }
+        evaluations++;
+        CompiledExpression rightExpression = program.expressions[right];
+        if (expressionEvaluator.typeOf(rightExpression) != VariableManager.INT) {
+            return compare(kind, leftVal, rightExpression);
+        }
+        return compare(kind, leftVal, expressionEvaluator.evaluate(rightExpression));
+    }
+
+    private static boolean compare(int kind, int leftVal, int rightVal) {
+        switch (kind) {
+            case CompiledProgram.TEST_GT: return leftVal > rightVal;
+            case CompiledProgram.TEST_LT: return leftVal < rightVal;
+            case CompiledProgram.TEST_GE: return leftVal >= rightVal;
+            case CompiledProgram.TEST_LE: return leftVal <= rightVal;
+            case CompiledProgram.TEST_EQ: return leftVal == rightVal;
+            case CompiledProgram.TEST_NE: return leftVal != rightVal;
+            default: throw new IllegalStateException("Неизвестный вид условия: " + kind);
+        }
+    }
+
+    private boolean testWide(int kind, CompiledExpression left, int right) {
+        if (expressionEvaluator.typeOf(left) == VariableManager.LONG) {
+            long leftVal = expressionEvaluator.evaluateLong(left);
+            if (kind == CompiledProgram.TEST_NONZERO) {
+                return leftVal != 0;
+            }
+            evaluations++;
+            return compare(kind, leftVal, program.expressions[right]);
+        }
+        double leftVal = expressionEvaluator.evaluateDouble(left);
+        if (kind == CompiledProgram.TEST_NONZERO) {
+            return leftVal != 0;
+        }
+        evaluations++;
+        return compare(kind, leftVal, expressionEvaluator.evaluateDouble(program.expressions[right]));
+    }
+
+    private boolean compare(int kind, long leftVal, CompiledExpression right) {
+        if (expressionEvaluator.typeOf(right) == VariableManager.DOUBLE) {
+            return compare(kind, (double) leftVal, expressionEvaluator.evaluateDouble(right));
+        }
+        long rightVal = expressionEvaluator.evaluateLong(right);
+
+        switch (kind) {
+            case CompiledProgram.TEST_GT: return leftVal > rightVal;
+            case CompiledProgram.TEST_LT: return leftVal < rightVal;
+            case CompiledProgram.TEST_GE: return leftVal >= rightVal;
+            case CompiledProgram.TEST_LE: return leftVal <= rightVal;
+            case CompiledProgram.TEST_EQ: return leftVal == rightVal;
+            case CompiledProgram.TEST_NE: return leftVal != rightVal;
+            default: throw new IllegalStateException("Неизвестный вид условия: " + kind);
+        }
+    }
+
+    private boolean compare(int kind, double leftVal, double rightVal) {
+        switch (kind) {
+            case CompiledProgram.TEST_GT: return leftVal > rightVal;
+            case CompiledProgram.TEST_LT: return leftVal < rightVal;
+            case CompiledProgram.TEST_GE: return leftVal >= rightVal;
+            case CompiledProgram.TEST_LE: return leftVal <= rightVal;
+            case CompiledProgram.TEST_EQ: return leftVal == rightVal;
+            case CompiledProgram.TEST_NE: return leftVal != rightVal;
+            default: throw new IllegalStateException("Неизвестный вид условия: " + kind);
+        }
+    }
+
+    private void traceError(String prefix, RuntimeException e) {
+        output.append(prefix).append(e.getMessage()).append("\n");
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.notscratch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BlockParserTest {
+    private static Statement parse(BlockType type, String source) {
+        return new BlockParser(source).parseBlock(type);
+    }
+
+    private static String text(Statement statement) {
+        return ((Statement.Simple) statement).text;
+    }
+
+    @Test
+    public void parsesElseIfChain() {
+        Statement.If statement = (Statement.If) parse(BlockType.IF_STATEMENT,
+                "if (x > 3) {\n y = 1\n} else if (x > 1) {\n y = 2\n} else {\n y = 3; z = 4\n}");
+
+        assertEquals(Arrays.asList("x > 3", "x > 1"), statement.conditions);
+        assertEquals(2, statement.branches.size());
+        assertEquals("y = 1", text(statement.branches.get(0).get(0)));
+        assertEquals("y = 2", text(statement.branches.get(1).get(0)));
+        assertEquals(2, statement.elseBranch.size());
+        assertEquals("z = 4", text(statement.elseBranch.get(1)));
+    }
+
+    @Test
+    public void parsesIfWithoutElse() {
+        Statement.If statement = (Statement.If) parse(BlockType.IF_STATEMENT, "if x == 1 { y = 2 }");
+
+        assertEquals(Arrays.asList("x == 1"), statement.conditions);
+        assertNull(statement.elseBranch);
+    }
+
+    @Test
+    public void parsesNestedIfInsideWhile() {
+        Statement.While loop = (Statement.While) parse(BlockType.WHILE_LOOP,
+                "while (i < 10) {\n"
+                        + "    if (i % 2 == 0) {\n"
+                        + "        if (i > 4) { s = s + i } else { s = s - 1 }\n"
+                        + "    } else {\n"
+                        + "        while (j < i) { j = j + 1 }\n"
+                        + "    }\n"
+                        + "    i = i + 1\n"
+                        + "}");
+
+        assertEquals("i < 10", loop.condition);
+        assertEquals(2, loop.body.size());
+        Statement.If outer = (Statement.If) loop.body.get(0);
+        Statement.If inner = (Statement.If) outer.branches.get(0).get(0);
+        assertEquals(Arrays.asList("i > 4"), inner.conditions);
+        assertEquals("s = s - 1", text(inner.elseBranch.get(0)));
+        Statement.While innerLoop = (Statement.While) outer.elseBranch.get(0);
+        assertEquals("j < i", innerLoop.condition);
+        assertEquals("i = i + 1", text(loop.body.get(1)));
+    }
+
+    @Test
+    public void parsesForHeaderWithNestedParentheses() {
+        Statement.For loop = (Statement.For) parse(BlockType.FOR_LOOP,
+                "for (i = (n - 1); i >= 0; i = i - 1) {\n if (a[i] > 0) { s = s + a[i] }\n}");
+
+        assertEquals("i = (n - 1)", loop.init);
+        assertEquals("i >= 0", loop.condition);
+        assertEquals("i = i - 1", loop.increment);
+        assertTrue(loop.body.get(0) instanceof Statement.If);
+    }
+
+    @Test
+    public void keepsParenthesesThatDoNotWrapWholeCondition() {
+        Statement.If statement = (Statement.If) parse(BlockType.IF_STATEMENT, "if (a + 1) * 2 > b { c = 1 }");
+
+        assertEquals(Arrays.asList("(a + 1) * 2 > b"), statement.conditions);
+    }
+
+    @Test
+    public void reportsUnclosedBodyWithPosition() {
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> parse(BlockType.WHILE_LOOP, "while (i < 3) {\n i = i + 1\n"));
+        assertEquals("Синтаксическая ошибка (строка 3, позиция 1): ожидается '}'", error.getMessage());
+    }
+
+    @Test
+    public void rejectsDanglingElse() {
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> parse(BlockType.WHILE_LOOP, "while (i < 3) {\n else { i = 1 }\n}"));
+        assertTrue(error.getMessage(), error.getMessage().endsWith("else без if"));
+    }
+
+    @Test
+    public void rejectsMalformedForHeader() {
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> parse(BlockType.FOR_LOOP, "for (i = 0; i < 3) { s = s + i }"));
+        assertTrue(error.getMessage(), error.getMessage().contains("Некорректный цикл for"));
+    }
+
+    @Test
+    public void rejectsTrailingText() {
+        List<String> sources = Arrays.asList("if (x) { y = 1 } z = 2", "while (x) { y = 1 } }");
+        for (String source : sources) {
+            BlockType type = source.startsWith("if") ? BlockType.IF_STATEMENT : BlockType.WHILE_LOOP;
+            RuntimeException error = assertThrows(RuntimeException.class, () -> parse(type, source));
+            assertTrue(error.getMessage(), error.getMessage().endsWith("лишний текст после блока"));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.notscratch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BlockSequenceTest {
+    private static Block block(int n) {
+        return new Block(BlockType.ASSIGNMENT, "x = " + n, "");
+    }
+
+    private static List<Block> blocks(int count) {
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            blocks.add(block(i));
+        }
+        return blocks;
+    }
+
+    private static void assertSameOrder(List<Block> expected, BlockSequence actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+            assertEquals(i, actual.indexOf(expected.get(i)));
+        }
+        int index = 0;
+        for (Block block : actual) {
+            assertSame(expected.get(index++), block);
+        }
+        assertEquals(expected.size(), index);
+    }
+
+    @Test
+    public void insertsAtFrontMiddleAndEnd() {
+        BlockSequence sequence = new BlockSequence();
+        List<Block> expected = new ArrayList<>();
+        Block a = block(1);
+        Block b = block(2);
+        Block c = block(3);
+        Block d = block(4);
+
+        sequence.add(a);
+        expected.add(a);
+        sequence.add(0, b);
+        expected.add(0, b);
+        sequence.add(1, c);
+        expected.add(1, c);
+        sequence.add(sequence.size(), d);
+        expected.add(d);
+
+        assertSameOrder(expected, sequence);
+        assertEquals(Arrays.asList(b, c, a, d), new ArrayList<>(sequence));
+    }
+
+    @Test
+    public void removesAndReturnsBlock() {
+        List<Block> expected = blocks(10);
+        BlockSequence sequence = new BlockSequence(expected);
+
+        assertSame(expected.remove(0), sequence.remove(0));
+        assertSame(expected.remove(8), sequence.remove(8));
+        assertSame(expected.remove(4), sequence.remove(4));
+        assertSameOrder(expected, sequence);
+    }
+
+    @Test
+    public void movesBlockForwardAndBackward() {
+        List<Block> expected = blocks(8);
+        BlockSequence sequence = new BlockSequence(expected);
+
+        sequence.move(1, 6);
+        expected.add(6, expected.remove(1));
+        assertSameOrder(expected, sequence);
+
+        sequence.move(7, 0);
+        expected.add(0, expected.remove(7));
+        assertSameOrder(expected, sequence);
+
+        sequence.move(3, 3);
+        assertSameOrder(expected, sequence);
+    }
+
+    @Test
+    public void matchesArrayListUnderRandomEdits() {
+        Random random = new Random(42);
+        List<Block> expected = new ArrayList<>();
+        BlockSequence sequence = new BlockSequence();
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(10);
+            if (expected.isEmpty() || op < 4) {
+                int index = random.nextInt(expected.size() + 1);
+                Block block = block(step);
+                expected.add(index, block);
+                sequence.add(index, block);
+            } else if (op < 6) {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), sequence.remove(index));
+            } else if (op < 9) {
+                int from = random.nextInt(expected.size());
+                int to = random.nextInt(expected.size());
+                expected.add(to, expected.remove(from));
+                sequence.move(from, to);
+            } else {
+                int index = random.nextInt(expected.size());
+                Block block = block(-step);
+                assertSame(expected.set(index, block), sequence.set(index, block));
+            }
+        }
+        assertSameOrder(expected, sequence);
+    }
+
+    @Test
+    public void addAllSplicesInPlace() {
+        List<Block> expected = blocks(5);
+        BlockSequence sequence = new BlockSequence(expected);
+        List<Block> inserted = blocks(3);
+
+        assertTrue(sequence.addAll(2, inserted));
+        expected.addAll(2, inserted);
+        assertSameOrder(expected, sequence);
+        assertFalse(sequence.addAll(0, new ArrayList<>()));
+    }
+
+    @Test
+    public void findsPositionsAfterEdits() {
+        List<Block> expected = blocks(50);
+        BlockSequence sequence = new BlockSequence(expected);
+        Block removed = sequence.remove(10);
+        expected.remove(10);
+        Block replaced = sequence.set(20, block(100));
+        expected.set(20, sequence.get(20));
+        sequence.move(0, 40);
+        expected.add(40, expected.remove(0));
+        List<Block> inserted = blocks(5);
+        sequence.addAll(7, inserted);
+        expected.addAll(7, inserted);
+
+        assertSameOrder(expected, sequence);
+        assertEquals(-1, sequence.indexOf(removed));
+        assertEquals(-1, sequence.indexOf(replaced));
+        assertEquals(-1, sequence.indexOf(block(0)));
+        assertFalse(sequence.contains("x = 1"));
+    }
+
+    @Test
+    public void findsFirstOccurrenceOfRepeatedBlock() {
+        Block repeated = block(7);
+        BlockSequence sequence = new BlockSequence(blocks(4));
+        sequence.add(3, repeated);
+        sequence.add(1, repeated);
+
+        assertEquals(1, sequence.indexOf(repeated));
+        sequence.remove(1);
+        assertEquals(3, sequence.indexOf(repeated));
+        sequence.clear();
+        sequence.add(repeated);
+        assertEquals(0, sequence.indexOf(repeated));
+    }
+
+    @Test
+    public void swapExchangesPositions() {
+        List<Block> first = blocks(3);
+        List<Block> second = blocks(4);
+        BlockSequence a = new BlockSequence(first);
+        BlockSequence b = new BlockSequence(second);
+        a.swap(b);
+
+        assertSameOrder(second, a);
+        assertSameOrder(first, b);
+        assertEquals(-1, a.indexOf(first.get(0)));
+    }
+
+    @Test
+    public void rejectsIndicesOutOfRange() {
+        BlockSequence sequence = new BlockSequence(blocks(3));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> sequence.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> sequence.remove(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> sequence.add(4, block(9)));
+        assertThrows(IndexOutOfBoundsException.class, () -> sequence.move(0, 3));
+    }
+
+    @Test
+    public void iteratorFailsAfterModification() {
+        BlockSequence sequence = new BlockSequence(blocks(3));
+        Iterator<Block> iterator = sequence.iterator();
+        iterator.next();
+        sequence.move(0, 2);
+
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+}
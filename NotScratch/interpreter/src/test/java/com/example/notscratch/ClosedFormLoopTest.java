@@ -0,0 +1,111 @@
+package com.example.notscratch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ClosedFormLoopTest {
+    private static final ExecutionBudget BUDGET = new ExecutionBudget(50_000_000, 30_000, 1 << 20);
+
+    private static List<Block> program(String declarations, String loop) {
+        List<Block> blocks = new ArrayList<>();
+        for (String declaration : declarations.split("\n")) {
+            blocks.add(new Block(BlockType.VARIABLE_DECLARATION, declaration, ""));
+        }
+        blocks.add(new Block(BlockType.FOR_LOOP, loop, ""));
+        return blocks;
+    }
+
+    private static Map<String, Object> run(String declarations, String loop) {
+        ExecutionResult closedForm = new ProgramExecutor().run(program(declarations, loop), BUDGET);
+        assertEquals(ExecutionResult.Status.COMPLETED, closedForm.getStatus());
+
+        ProgramExecutor stepwise = new ProgramExecutor();
+        OutputBuffer output = new OutputBuffer();
+        List<String> errors = new ArrayList<>();
+        stepwise.execute(stepwise.compileForDebugging(program(declarations, loop)), BUDGET, output, errors::add);
+        output.flush();
+
+        assertEquals(errors, closedForm.getErrors());
+        assertEquals(stepwise.getVariableManager().getAllVariables(), closedForm.getVariables());
+        assertEquals(output.toString(), closedForm.getOutput());
+        return closedForm.getVariables();
+    }
+
+    @Test
+    public void sumsWithPositiveStep() {
+        Map<String, Object> variables = run("int i, s, t",
+                "for (i = 0; i < 10; i = i + 3) {\n s = s + i\n t = t + 2\n}");
+
+        assertEquals(12, variables.get("i"));
+        assertEquals(0 + 3 + 6 + 9, variables.get("s"));
+        assertEquals(8, variables.get("t"));
+    }
+
+    @Test
+    public void sumsWithInclusiveBound() {
+        Map<String, Object> variables = run("int i, s", "for (i = 1; i <= 10; i = 2 + i) {\n s = i + s\n}");
+
+        assertEquals(11, variables.get("i"));
+        assertEquals(1 + 3 + 5 + 7 + 9, variables.get("s"));
+    }
+
+    @Test
+    public void sumsWithNegativeStep() {
+        Map<String, Object> variables = run("int i, s, t",
+                "for (i = 10; i > 0; i = i - 3) {\n s = s + i\n t = t + 1\n}");
+        assertEquals(-2, variables.get("i"));
+        assertEquals(10 + 7 + 4 + 1, variables.get("s"));
+        assertEquals(4, variables.get("t"));
+
+        variables = run("int i, s", "for (i = 10; i >= 1; i = i - 3) {\n s = s + i\n}");
+        assertEquals(-2, variables.get("i"));
+        assertEquals(22, variables.get("s"));
+    }
+
+    @Test
+    public void skipsLoopWithZeroTrips() {
+        Map<String, Object> variables = run("int i, s", "for (i = 5; i < 5; i = i + 1) {\n s = s + i\n}");
+        assertEquals(5, variables.get("i"));
+        assertEquals(0, variables.get("s"));
+
+        variables = run("int i, s", "for (i = 5; i < -20; i = i + 4) {\n s = s + 1\n}");
+        assertEquals(5, variables.get("i"));
+        assertEquals(0, variables.get("s"));
+
+        variables = run("int i, s", "for (i = 0; i > 10; i = i - 1) {\n s = s + 1\n}");
+        assertEquals(0, variables.get("i"));
+        assertEquals(0, variables.get("s"));
+    }
+
+    @Test
+    public void reevaluatesConditionThatReadsAccumulator() {
+        Map<String, Object> variables = run("int i, s", "for (i = 0; i < 10 - s; i = i + 1) {\n s = s + 1\n}");
+
+        assertEquals(5, variables.get("i"));
+        assertEquals(5, variables.get("s"));
+    }
+
+    @Test
+    public void wrapsIntAccumulatorButNotLong() {
+        Map<String, Object> variables = run("int i, s\nlong w",
+                "for (i = 0; i < 100000; i = i + 1) {\n s = s + i\n w = w + i\n}");
+
+        long exact = 100000L * 99999 / 2;
+        assertEquals((int) exact, variables.get("s"));
+        assertEquals(exact, variables.get("w"));
+    }
+
+    @Test
+    public void wrapsConstantAddend() {
+        Map<String, Object> variables = run("int i, s\nlong w",
+                "for (i = 0; i < 3; i = i + 1) {\n s = s + 2147483647\n w = w + 2147483647\n}");
+
+        assertEquals(2147483647 * 3, variables.get("s"));
+        assertEquals(2147483647L * 3, variables.get("w"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.notscratch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ExpressionEvaluatorTest {
+    private VariableManager variables;
+    private ExpressionEvaluator evaluator;
+
+    @Before
+    public void setUp() {
+        variables = new VariableManager();
+        evaluator = new ExpressionEvaluator(variables);
+    }
+
+    @Test
+    public void respectsPrecedenceAndParentheses() {
+        assertEquals(14, evaluator.evaluate("2 + 3 * 4"));
+        assertEquals(20, evaluator.evaluate("(2 + 3) * 4"));
+        assertEquals(1, evaluator.evaluate("7 % 3"));
+        assertEquals(-3, evaluator.evaluate("-(1 + 2)"));
+        assertEquals(2, evaluator.evaluate("10 - 4 - 4"));
+        assertEquals(5, evaluator.evaluate("100 / 10 / 2"));
+    }
+
+    @Test
+    public void readsVariablesBySlot() {
+        variables.declareVariable("x");
+        variables.setVariable("x", 6);
+        assertEquals(13, evaluator.evaluate("x * 2 + 1"));
+
+        variables.setVariable("x", -2);
+        assertEquals(-3, evaluator.evaluate("x * 2 + 1"));
+    }
+
+    @Test
+    public void wrapsIntOverflowLikeJava() {
+        variables.declareVariable("x");
+        variables.setVariable("x", Integer.MAX_VALUE);
+        assertEquals(Integer.MIN_VALUE, evaluator.evaluate("x + 1"));
+    }
+
+    @Test
+    public void cachesCompiledPostfixBySource() {
+        CompiledExpression first = evaluator.compile("a + b * 2");
+        assertSame(first, evaluator.compile("a + b * 2"));
+        assertNotSame(first, evaluator.compile("a + b * 3"));
+    }
+
+    @Test
+    public void cachedExpressionSeesCurrentValues() {
+        variables.declareVariable("a");
+        CompiledExpression compiled = evaluator.compile("a * a");
+        for (int i = 0; i < 200; i++) {
+            variables.setVariable("a", i);
+            assertEquals(i * i, evaluator.evaluate(compiled));
+        }
+    }
+
+    @Test
+    public void reportsDivisionByZero() {
+        variables.declareVariable("z");
+        RuntimeException error = assertThrows(RuntimeException.class, () -> evaluator.evaluate("5 / z"));
+        assertEquals("Ошибка в выражении '5 / z': Деление на ноль", error.getMessage());
+
+        error = assertThrows(RuntimeException.class, () -> evaluator.evaluate("5 % z"));
+        assertEquals("Ошибка в выражении '5 % z': Деление на ноль при взятии остатка", error.getMessage());
+    }
+
+    @Test
+    public void reportsUndeclaredVariable() {
+        RuntimeException error = assertThrows(RuntimeException.class, () -> evaluator.evaluate("missing + 1"));
+        assertTrue(error.getMessage(), error.getMessage().contains("необъявленной переменной 'missing'"));
+    }
+
+    @Test
+    public void rejectsEmptyExpression() {
+        assertThrows(RuntimeException.class, () -> evaluator.evaluate("   "));
+        assertThrows(RuntimeException.class, () -> evaluator.evaluate((String) null));
+    }
+
+    @Test
+    public void reportsMalformedExpression() {
+        assertThrows(RuntimeException.class, () -> evaluator.evaluate("(1 + 2"));
+        assertThrows(RuntimeException.class, () -> evaluator.evaluate("1 +"));
+    }
+}
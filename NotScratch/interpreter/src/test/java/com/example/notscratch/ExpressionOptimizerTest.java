@@ -0,0 +1,101 @@
+package com.example.notscratch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExpressionOptimizerTest {
+    private static final ExecutionBudget BUDGET = new ExecutionBudget(1_000_000, 10_000, 1 << 20);
+
+    private ExpressionEvaluator evaluator;
+    private ExpressionOptimizer optimizer;
+
+    @Before
+    public void setUp() {
+        evaluator = new ExpressionEvaluator(new VariableManager());
+        optimizer = new ExpressionOptimizer();
+    }
+
+    private void assertOptimizedTo(String expected, String source) {
+        int[] actual = optimizer.optimize(evaluator.compileUncached(source)).code;
+        assertArrayEquals(source, optimizer.optimize(evaluator.compileUncached(expected)).code, actual);
+    }
+
+    private static ExecutionResult run(String... code) {
+        List<Block> blocks = new ArrayList<>();
+        for (String line : code) {
+            BlockType type = line.startsWith("int") || line.startsWith("long") || line.startsWith("double") ?
+                    BlockType.VARIABLE_DECLARATION : BlockType.ASSIGNMENT;
+            blocks.add(new Block(type, line, ""));
+        }
+        return new ProgramExecutor().run(blocks, BUDGET);
+    }
+
+    @Test
+    public void foldsIntConstants() {
+        assertOptimizedTo("14", "2 + 3 * 4");
+        assertOptimizedTo("-6", "-(2 * 3)");
+        assertOptimizedTo("x + 5", "x + (10 / 2)");
+        assertOptimizedTo("x % 7", "x % (3 + 4)");
+    }
+
+    @Test
+    public void keepsDivisionByConstantZero() {
+        assertOptimizedTo("x + 1 / 0", "x + 1 / 0");
+    }
+
+    @Test
+    public void regroupsIntConstantChains() {
+        assertOptimizedTo("x + 3", "x + 1 + 2");
+        assertOptimizedTo("x + -1", "x - 3 + 2");
+        assertOptimizedTo("x * 21", "x * 3 * 7");
+        assertOptimizedTo("x", "x + 0");
+        assertOptimizedTo("x", "1 * x");
+        assertOptimizedTo("x", "x - 5 + 5");
+    }
+
+    @Test
+    public void leavesOverflowingChainsAlone() {
+        assertOptimizedTo("x * 65536 * 65536", "x * 65536 * 65536");
+        assertOptimizedTo("x + 2147483647 + 1", "x + 2147483647 + 1");
+    }
+
+    @Test
+    public void doesNotRegroupAroundWideConstants() {
+        assertOptimizedTo("x + 0.5 + 1", "x + 0.5 + 1");
+        assertOptimizedTo("x * 1.0", "x * 1.0");
+    }
+
+    @Test
+    public void keepsDoubleRoundingOfConstantChains() {
+        ExecutionResult result = run("double y, a, b", "y = 10000000000000000.0", "a = y + 1 + 2",
+                "y = 0.1", "b = y * 3 * 7");
+
+        assertEquals(Arrays.asList(), result.getErrors());
+        assertEquals(10000000000000000.0 + 1 + 2, result.getVariables().get("a"));
+        assertEquals(0.1 * 3 * 7, result.getVariables().get("b"));
+    }
+
+    @Test
+    public void keepsLongResultsOfConstantChains() {
+        ExecutionResult result = run("long w, a, b", "int i", "w = 2000000000", "w = w * 2", "i = 2147483647",
+                "a = w + i + 1 - 1", "b = w * 3 * 7 + 0");
+
+        assertEquals(Arrays.asList(), result.getErrors());
+        assertEquals(4000000000L + 2147483647 + 1 - 1, result.getVariables().get("a"));
+        assertEquals(4000000000L * 3 * 7, result.getVariables().get("b"));
+    }
+
+    @Test
+    public void keepsIntWraparoundOfConstantChains() {
+        ExecutionResult result = run("int x, a, b", "x = 2147483647", "a = x + 1 + 2", "b = x * 3 * 7");
+
+        assertEquals(Integer.MAX_VALUE + 1 + 2, result.getVariables().get("a"));
+        assertEquals(Integer.MAX_VALUE * 3 * 7, result.getVariables().get("b"));
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.notscratch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IncrementalExecutionTest {
+    private static final ExecutionBudget BUDGET = new ExecutionBudget(5_000_000, 30_000, 16 << 20);
+
+    private ProgramExecutor executor;
+    private OutputBuffer output;
+    private List<String> errors;
+    private List<Block> blocks;
+
+    @Before
+    public void setUp() {
+        executor = new ProgramExecutor();
+        executor.setIncremental(true);
+        output = new OutputBuffer();
+        errors = new ArrayList<>();
+        blocks = new ArrayList<>(Arrays.asList(
+                new Block(BlockType.VARIABLE_DECLARATION, "int a, b, c, i", ""),
+                new Block(BlockType.VARIABLE_DECLARATION, "int[] arr = new int[4]", ""),
+                new Block(BlockType.ASSIGNMENT, "a = 3", ""),
+                new Block(BlockType.ASSIGNMENT, "b = 10 / c", ""),
+                new Block(BlockType.FOR_LOOP, "for (i = 0; i < 4; i = i + 1) {\n arr[i] = a * i\n}", ""),
+                new Block(BlockType.ASSIGNMENT, "b = a + 1", ""),
+                new Block(BlockType.ARITHMETIC, "sum(arr)", ""),
+                new Block(BlockType.ASSIGNMENT, "c = 7", "")));
+    }
+
+    private void runIncremental() {
+        errors.clear();
+        executor.execute(executor.compile(blocks), BUDGET, output, errors::add);
+        output.flush();
+    }
+
+    private void runLive() {
+        errors.clear();
+        executor.executeLive(executor.compile(blocks), BUDGET, output, errors::add);
+        output.flush();
+    }
+
+    private void assertMatchesFullRun() {
+        List<Block> copies = new ArrayList<>();
+        for (Block block : blocks) {
+            copies.add(block.copy());
+        }
+        ProgramExecutor full = new ProgramExecutor();
+        OutputBuffer fullOutput = new OutputBuffer();
+        List<String> fullErrors = new ArrayList<>();
+        full.execute(full.compile(copies), BUDGET, fullOutput, fullErrors::add);
+        fullOutput.flush();
+
+        assertEquals(fullOutput.toString(), output.toString());
+        assertEquals(fullErrors, errors);
+        assertEquals(describe(full.getVariableManager()), describe(executor.getVariableManager()));
+    }
+
+    private static String describe(VariableManager variables) {
+        StringBuilder text = new StringBuilder();
+        variables.getAllVariables().forEach((name, value) ->
+                text.append(name).append(" = ").append(VariableManager.describe(value)).append("\n"));
+        return text.toString();
+    }
+
+    @Test
+    public void firstRunExecutesEveryBlock() {
+        runIncremental();
+
+        assertEquals(blocks.size(), executor.getRecomputedBlockCount());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void unchangedProgramIsNotRecomputed() {
+        runIncremental();
+        runIncremental();
+
+        assertEquals(0, executor.getRecomputedBlockCount());
+        assertEquals(1, errors.size());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void resumesFromEditedBlockAndReplaysEarlierErrors() {
+        runIncremental();
+        blocks.get(5).setCode("b = a + 2");
+        runIncremental();
+
+        assertEquals(3, executor.getRecomputedBlockCount());
+        assertEquals(1, errors.size());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void liveEditRecomputesOnlyEditedBlockWithoutDependents() {
+        runIncremental();
+        blocks.get(5).setCode("b = a + 2");
+        runLive();
+
+        assertEquals(1, executor.getRecomputedBlockCount());
+        assertEquals(1, errors.size());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void recomputesOnlyBlocksWhoseInputsChanged() {
+        runLive();
+        blocks.get(2).setCode("a = 5");
+        runLive();
+
+        assertEquals(4, executor.getRecomputedBlockCount());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void liveEditFollowsTransitiveDependents() {
+        blocks.add(new Block(BlockType.ASSIGNMENT, "c = b * 2", ""));
+        blocks.add(new Block(BlockType.ASSIGNMENT, "i = c + 1", ""));
+        runLive();
+        blocks.get(5).setCode("b = a + 2");
+        runLive();
+
+        assertEquals(3, executor.getRecomputedBlockCount());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void liveRemovalRerunsShiftedBlocks() {
+        runLive();
+        blocks.remove(6);
+        runLive();
+
+        assertEquals(1, executor.getRecomputedBlockCount());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void restoresArraysMutatedAfterCheckpoint() {
+        blocks.add(new Block(BlockType.ARITHMETIC, "fill(arr, 9)", ""));
+        blocks.add(new Block(BlockType.ASSIGNMENT, "arr[0] = arr[1] + a", ""));
+        runIncremental();
+        blocks.get(6).setCode("sum(arr) + 1");
+        runIncremental();
+
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void handlesInsertedAndRemovedBlocks() {
+        runIncremental();
+        blocks.add(3, new Block(BlockType.ASSIGNMENT, "c = 2", ""));
+        runIncremental();
+        assertMatchesFullRun();
+
+        blocks.remove(1);
+        blocks.remove(3);
+        runIncremental();
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void runsEverythingWithAnotherOutputBuffer() {
+        runIncremental();
+        output = new OutputBuffer();
+        runIncremental();
+
+        assertEquals(blocks.size(), executor.getRecomputedBlockCount());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void matchesFullRunUnderRandomEdits() {
+        Random random = new Random(7);
+        String[] assignments = { "a = a + 1", "b = a * 2", "c = b - a", "a = 4", "c = c + 1", "b = 10 / c",
+                "arr[a % 4] = b", "i = sum(arr) % 5", "copy(arr, 0, arr, 1, 2)" };
+        for (int step = 0; step < 200; step++) {
+            int index = 2 + random.nextInt(blocks.size() - 2);
+            String code = assignments[random.nextInt(assignments.length)];
+            BlockType type = code.startsWith("copy") ? BlockType.ARITHMETIC : BlockType.ASSIGNMENT;
+            switch (random.nextInt(4)) {
+                case 0:
+                    blocks.add(index, new Block(type, code, ""));
+                    break;
+                case 1:
+                    if (blocks.size() > 4) {
+                        blocks.remove(index);
+                    }
+                    break;
+                default:
+                    if (blocks.get(index).getType() == type) {
+                        blocks.get(index).setCode(code);
+                    }
+                    break;
+            }
+            if (random.nextInt(3) == 0) {
+                runIncremental();
+            } else {
+                runLive();
+            }
+            assertMatchesFullRun();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.notscratch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProgramExecutorTest {
+    private static final ExecutionBudget BUDGET = new ExecutionBudget(1_000_000, 10_000, 1 << 20);
+
+    private static Block block(BlockType type, String code) {
+        return new Block(type, code, "");
+    }
+
+    private static ExecutionResult run(Block... blocks) {
+        return new ProgramExecutor().run(new ArrayList<>(Arrays.asList(blocks)), BUDGET);
+    }
+
+    @Test
+    public void takesMatchingIfBranch() {
+        for (int x = 0; x < 6; x++) {
+            ExecutionResult result = run(
+                    block(BlockType.VARIABLE_DECLARATION, "int x, y"),
+                    block(BlockType.ASSIGNMENT, "x = " + x),
+                    block(BlockType.IF_STATEMENT,
+                            "if (x > 3) {\n y = 1\n} else if (x > 1) {\n y = 2\n} else {\n y = 3\n}"));
+
+            assertEquals(ExecutionResult.Status.COMPLETED, result.getStatus());
+            int expected = x > 3 ? 1 : x > 1 ? 2 : 3;
+            assertEquals(expected, result.getVariables().get("y"));
+        }
+    }
+
+    @Test
+    public void runsWhileAndForLoops() {
+        ExecutionResult result = run(
+                block(BlockType.VARIABLE_DECLARATION, "int i, s, j, t"),
+                block(BlockType.WHILE_LOOP, "while (i < 5) {\n s = s + i\n i = i + 1\n}"),
+                block(BlockType.FOR_LOOP, "for (j = 0; j < 4; j = j + 1) {\n t = t + j * j\n}"));
+
+        assertEquals(ExecutionResult.Status.COMPLETED, result.getStatus());
+        assertEquals(5, result.getVariables().get("i"));
+        assertEquals(10, result.getVariables().get("s"));
+        assertEquals(4, result.getVariables().get("j"));
+        assertEquals(14, result.getVariables().get("t"));
+        assertTrue(result.getOutput().contains("Цикл while завершен после 5 итераций"));
+    }
+
+    @Test
+    public void skipsLoopWhoseConditionIsFalse() {
+        ExecutionResult result = run(
+                block(BlockType.VARIABLE_DECLARATION, "int i, s"),
+                block(BlockType.ASSIGNMENT, "i = 10"),
+                block(BlockType.WHILE_LOOP, "while (i < 5) {\n s = s + 1\n i = i + 1\n}"));
+
+        assertEquals(10, result.getVariables().get("i"));
+        assertEquals(0, result.getVariables().get("s"));
+    }
+
+    @Test
+    public void reportsErrorAndContinuesWithNextBlock() {
+        ExecutionResult result = run(
+                block(BlockType.VARIABLE_DECLARATION, "int x, y"),
+                block(BlockType.ASSIGNMENT, "x = 10 / y"),
+                block(BlockType.ASSIGNMENT, "y = 7"));
+
+        assertEquals(ExecutionResult.Status.COMPLETED, result.getStatus());
+        assertEquals(Arrays.asList(
+                "Ошибка в блоке #2 (Присваивание): Ошибка в выражении '10 / y': Деление на ноль"),
+                result.getErrors());
+        assertEquals(0, result.getVariables().get("x"));
+        assertEquals(7, result.getVariables().get("y"));
+    }
+
+    @Test
+    public void reportsUndeclaredVariableWithBlockNumber() {
+        ExecutionResult result = run(
+                block(BlockType.VARIABLE_DECLARATION, "int x"),
+                block(BlockType.ASSIGNMENT, "x = 1"),
+                block(BlockType.ASSIGNMENT, "x = z + 1"));
+
+        List<String> errors = result.getErrors();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).startsWith("Ошибка в блоке #3 (Присваивание): "));
+        assertEquals(1, result.getVariables().get("x"));
+    }
+
+    @Test
+    public void stopsInfiniteLoopAtInstructionBudget() {
+        List<Block> blocks = new ArrayList<>();
+        blocks.add(block(BlockType.VARIABLE_DECLARATION, "int s"));
+        blocks.add(block(BlockType.WHILE_LOOP, "while (1 > 0) {\n s = s + 1\n}"));
+
+        ExecutionResult result = new ProgramExecutor().run(blocks, new ExecutionBudget(10_000, 10_000, 1 << 20));
+
+        assertEquals(ExecutionResult.Status.STOPPED, result.getStatus());
+        assertTrue(result.getMessage(), result.getMessage().startsWith("Превышен лимит инструкций (10000)"));
+        assertEquals(10_000, result.getInstructions());
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.notscratch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProgramStoreTest {
+    private static final ExecutionBudget BUDGET = new ExecutionBudget(1_000_000, 10_000, 1 << 20);
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("program", ".nsb");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    private static List<String> codes(List<Block> blocks) {
+        List<String> codes = new ArrayList<>();
+        for (Block block : blocks) {
+            codes.add(block.getType() + ":" + block.getCode() + ":" + block.getDescription());
+        }
+        return codes;
+    }
+
+    private static List<Block> sampleProgram() {
+        List<Block> blocks = new ArrayList<>();
+        blocks.add(new Block(BlockType.VARIABLE_DECLARATION, "int i, s", "счётчики"));
+        blocks.add(new Block(BlockType.ASSIGNMENT, "s = 5", ""));
+        blocks.add(new Block(BlockType.WHILE_LOOP, "while (i < 4) {\n s = s + i\n i = i + 1\n}", "цикл"));
+        return blocks;
+    }
+
+    @Test
+    public void loadsEmptyProgramWhenFileIsMissing() throws IOException {
+        try (ProgramStore store = new ProgramStore(file)) {
+            assertTrue(store.load(new SymbolTable()).isEmpty());
+        }
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void replaysJournalOnTopOfSnapshot() throws IOException {
+        List<Block> expected = new ArrayList<>(sampleProgram());
+        try (ProgramStore store = new ProgramStore(file)) {
+            store.load(new SymbolTable());
+            store.compact(expected);
+
+            Block extra = new Block(BlockType.ARITHMETIC, "s * 2", "");
+            expected.add(1, extra);
+            store.insert(1, extra);
+
+            expected.get(2).setCode("s = 7");
+            store.update(2, expected.get(2));
+
+            expected.add(0, expected.remove(3));
+            store.move(3, 0);
+
+            expected.remove(1);
+            store.remove(1);
+        }
+
+        try (ProgramStore store = new ProgramStore(file)) {
+            assertEquals(codes(expected), codes(store.load(new SymbolTable())));
+        }
+    }
+
+    @Test
+    public void clearRecordDropsEarlierBlocks() throws IOException {
+        try (ProgramStore store = new ProgramStore(file)) {
+            store.load(new SymbolTable());
+            store.compact(sampleProgram());
+            store.clear();
+            store.insert(0, new Block(BlockType.ASSIGNMENT, "s = 1", ""));
+        }
+
+        try (ProgramStore store = new ProgramStore(file)) {
+            List<Block> loaded = store.load(new SymbolTable());
+            assertEquals(1, loaded.size());
+            assertEquals("s = 1", loaded.get(0).getCode());
+        }
+    }
+
+    @Test
+    public void recoversFromTornJournalRecord() throws IOException {
+        List<Block> expected = new ArrayList<>(sampleProgram());
+        long lengthBeforeLastRecord;
+        try (ProgramStore store = new ProgramStore(file)) {
+            store.load(new SymbolTable());
+            store.compact(expected);
+            Block first = new Block(BlockType.ASSIGNMENT, "i = 1", "");
+            expected.add(first);
+            store.insert(expected.size() - 1, first);
+            lengthBeforeLastRecord = file.length();
+            store.insert(0, new Block(BlockType.ASSIGNMENT, "i = 2", "оборвётся при записи"));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 3);
+        }
+
+        try (ProgramStore store = new ProgramStore(file)) {
+            assertEquals(codes(expected), codes(store.load(new SymbolTable())));
+        }
+        assertEquals(lengthBeforeLastRecord, file.length());
+
+        try (ProgramStore store = new ProgramStore(file)) {
+            store.load(new SymbolTable());
+            store.insert(0, new Block(BlockType.ASSIGNMENT, "i = 3", ""));
+        }
+        expected.add(0, new Block(BlockType.ASSIGNMENT, "i = 3", ""));
+        try (ProgramStore store = new ProgramStore(file)) {
+            assertEquals(codes(expected), codes(store.load(new SymbolTable())));
+        }
+    }
+
+    @Test
+    public void restoredFragmentsRunLikeFreshCompilation() throws IOException {
+        ProgramExecutor original = new ProgramExecutor();
+        List<Block> blocks = sampleProgram();
+        ExecutionResult expected = original.run(blocks, BUDGET);
+        for (Block block : blocks) {
+            assertNotNull(block.getCompiledFragment());
+        }
+        try (ProgramStore store = new ProgramStore(file)) {
+            store.load(new SymbolTable());
+            store.compact(blocks);
+        }
+
+        ProgramExecutor restored = new ProgramExecutor();
+        List<Block> loaded;
+        try (ProgramStore store = new ProgramStore(file)) {
+            loaded = store.load(restored.getVariableManager().getSymbols());
+        }
+        for (Block block : loaded) {
+            assertNotNull(block.getCompiledFragment());
+        }
+        ExecutionResult actual = restored.run(loaded, BUDGET);
+        assertEquals(expected.getVariables(), actual.getVariables());
+        assertEquals(expected.getOutput(), actual.getOutput());
+    }
+
+    @Test
+    public void compactsWhileSymbolsAreAdded() throws Exception {
+        ProgramExecutor executor = new ProgramExecutor();
+        List<Block> blocks = sampleProgram();
+        executor.run(blocks, BUDGET);
+        SymbolTable symbols = executor.getVariableManager().getSymbols();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                symbols.slotOf("v" + i);
+            }
+        });
+        writer.start();
+        try (ProgramStore store = new ProgramStore(file)) {
+            store.load(new SymbolTable());
+            for (int i = 0; i < 20; i++) {
+                store.compact(blocks);
+            }
+        }
+        writer.join();
+
+        assertEquals(5002, symbols.size());
+        assertEquals("v4999", symbols.nameOf(symbols.find("v4999")));
+        try (ProgramStore store = new ProgramStore(file)) {
+            assertEquals(codes(blocks), codes(store.load(new SymbolTable())));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.notscratch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VariableManagerTest {
+    private static String describe(VariableManager variables) {
+        StringBuilder text = new StringBuilder();
+        variables.getAllVariables().forEach((name, value) ->
+                text.append(name).append(" = ").append(VariableManager.describe(value)).append("\n"));
+        return text.toString();
+    }
+
+    @Test
+    public void restoresValuesWrittenAfterSnapshot() {
+        VariableManager variables = new VariableManager();
+        int a = variables.getSymbols().slotOf("a");
+        int big = variables.getSymbols().slotOf("big");
+        int arr = variables.getSymbols().slotOf("arr");
+        variables.declareVariable(a);
+        variables.declareVariable(big, VariableManager.LONG);
+        variables.declareArray(arr, 3);
+        variables.setVariable(a, 1);
+        variables.setLong(big, 1L << 40);
+        variables.setElement(arr, 0, 5);
+        VariableManager.Snapshot snapshot = variables.snapshot();
+        String before = describe(variables);
+
+        variables.setVariable(a, 2);
+        variables.setLong(big, 7);
+        variables.setElement(arr, 0, 9);
+        variables.declareVariable("late");
+        variables.restore(snapshot);
+
+        assertEquals(before, describe(variables));
+        assertFalse(variables.hasVariable("late"));
+        variables.setElement(arr, 1, 4);
+        variables.restore(snapshot);
+        assertEquals(before, describe(variables));
+    }
+
+    @Test
+    public void keepsLaterSnapshotsIntactAfterRestoringEarlierOne() {
+        VariableManager variables = new VariableManager();
+        variables.declareVariable("a");
+        VariableManager.Snapshot first = variables.snapshot();
+        variables.declareVariable("b");
+        variables.setVariable("b", 3);
+        VariableManager.Snapshot second = variables.snapshot();
+        String afterSecond = describe(variables);
+
+        variables.restore(first);
+        variables.snapshot();
+        variables.declareVariable("c");
+        variables.setVariable("c", 8);
+        variables.restore(second);
+
+        assertEquals(afterSecond, describe(variables));
+    }
+
+    @Test
+    public void matchesCopiedStateUnderRandomSnapshots() {
+        Random random = new Random(7);
+        VariableManager variables = new VariableManager();
+        List<VariableManager.Snapshot> snapshots = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        int declared = 0;
+        for (int step = 0; step < 3000; step++) {
+            int op = random.nextInt(10);
+            if (declared == 0 || op == 0) {
+                String name = "v" + declared++;
+                if (random.nextInt(4) == 0) {
+                    variables.declareArray(variables.getSymbols().slotOf(name), 1 + random.nextInt(4));
+                } else {
+                    variables.declareVariable(name);
+                }
+            } else if (op < 6) {
+                int slot = variables.getSymbols().find("v" + random.nextInt(declared));
+                if (slot >= 0 && variables.kindOf(slot) == VariableManager.ARRAY) {
+                    variables.setElement(slot, random.nextInt(variables.arrayLength(slot)), random.nextInt(100));
+                } else if (slot >= 0 && variables.kindOf(slot) == VariableManager.INT) {
+                    variables.setVariable(slot, random.nextInt(1000));
+                }
+            } else if (op < 8) {
+                snapshots.add(variables.snapshot());
+                expected.add(describe(variables));
+            } else if (!snapshots.isEmpty()) {
+                int index = random.nextInt(snapshots.size());
+                variables.restore(snapshots.get(index));
+                assertEquals(expected.get(index), describe(variables));
+                if (random.nextBoolean()) {
+                    snapshots.subList(index + 1, snapshots.size()).clear();
+                    expected.subList(index + 1, expected.size()).clear();
+                }
+                declared = variables.getAllVariables().size();
+            }
+        }
+    }
+}
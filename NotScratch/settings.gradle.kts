@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "notscratch"
 include(":app")
+include(":interpreter")
  
\ No newline at end of file
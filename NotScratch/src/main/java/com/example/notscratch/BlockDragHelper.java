@@ -15,6 +15,9 @@ public class BlockDragHelper extends ItemTouchHelper.Callback {
     @Override
     public int getMovementFlags(@NonNull RecyclerView recyclerView,
                                 @NonNull RecyclerView.ViewHolder viewHolder) {
+        if (adapter.isDiffPending()) {
+            return makeMovementFlags(0, 0);
+        }
         int dragFlags = ItemTouchHelper.UP | ItemTouchHelper.DOWN;
         return makeMovementFlags(dragFlags, 0);
     }
@@ -34,6 +37,12 @@ public class BlockDragHelper extends ItemTouchHelper.Callback {
         return false;
     }
 
+    @Override
+    public void clearView(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder) {
+        super.clearView(recyclerView, viewHolder);
+        adapter.finishDrag();
+    }
+
     @Override
     public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
         //нет
@@ -1,7 +1,11 @@
 package com.example.notscratch;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
 import android.text.InputType;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.EditText;
@@ -11,13 +15,26 @@ import androidx.appcompat.app.AlertDialog;
 import com.example.notscratch.R;
 import com.example.notscratch.Block;
 import com.example.notscratch.BlockType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class BlockEditorDialog {
+    private static final long PREVIEW_DELAY_MS = 250;
+    private static final int PREVIEW_MAX_VARIABLES = 20;
+    private static final ExecutorService PREVIEW_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "block-preview");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public interface OnBlockSavedListener {
         void onBlockSaved(Block block);
     }
 
-    public static void show(Context context, Block block, boolean isEditMode, OnBlockSavedListener listener) {
+    public static void show(Context context, Block block, boolean isEditMode, List<Block> precedingBlocks,
+                            BlockPreview preview, OnBlockSavedListener listener) {
         AlertDialog.Builder builder = new AlertDialog.Builder(context);
         builder.setTitle(isEditMode ? "Редактировать блок" : "Создать блок");
 
@@ -27,6 +44,7 @@ public class BlockEditorDialog {
         EditText etCode = view.findViewById(R.id.etCode);
         EditText etDescription = view.findViewById(R.id.etDescription);
         TextView tvType = view.findViewById(R.id.tvType);
+        TextView tvPreview = view.findViewById(R.id.tvPreview);
 
         etCode.setText(block.getCode());
         etDescription.setText(block.getDescription());
@@ -63,13 +81,87 @@ public class BlockEditorDialog {
             });
         }
 
-        builder.show();
+        Handler handler = new Handler(Looper.getMainLooper());
+        int[] generation = {0};
+        Runnable previewTask = () -> {
+            String code = etCode.getText().toString().trim();
+            int requested = ++generation[0];
+            if (code.isEmpty()) {
+                tvPreview.setText("");
+                return;
+            }
+            PREVIEW_EXECUTOR.execute(() -> {
+                BlockPreview.Result result;
+                try {
+                    result = preview.preview(precedingBlocks, block.getType(), code);
+                } catch (RuntimeException e) {
+                    result = null;
+                }
+                BlockPreview.Result shown = result;
+                handler.post(() -> {
+                    if (requested == generation[0]) {
+                        showPreview(context, tvPreview, shown);
+                    }
+                });
+            });
+        };
+        etCode.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                handler.removeCallbacks(previewTask);
+                handler.postDelayed(previewTask, PREVIEW_DELAY_MS);
+            }
+        });
+        handler.post(previewTask);
+
+        AlertDialog dialog = builder.show();
+        dialog.setOnDismissListener(d -> {
+            handler.removeCallbacks(previewTask);
+            generation[0]++;
+        });
+    }
+
+    private static void showPreview(Context context, TextView tvPreview, BlockPreview.Result result) {
+        if (result == null) {
+            tvPreview.setText("");
+            return;
+        }
+        if (result.hasSyntaxError()) {
+            tvPreview.setTextColor(context.getResources().getColor(R.color.error));
+            tvPreview.setText("⚠ " + result.getSyntaxError());
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        if (result.getError() != null) {
+            text.append("❌ ").append(result.getError()).append("\n");
+        }
+        int shown = 0;
+        for (Map.Entry<String, Object> entry : result.getVariables().entrySet()) {
+            if (shown++ == PREVIEW_MAX_VARIABLES) {
+                text.append("…\n");
+                break;
+            }
+            text.append(result.getChangedVariables().contains(entry.getKey()) ? "• " : "  ")
+                    .append(entry.getKey()).append(" = ").append(VariableManager.describe(entry.getValue())).append("\n");
+        }
+        tvPreview.setTextColor(context.getResources().getColor(
+                result.getError() != null ? R.color.error : R.color.text_secondary));
+        tvPreview.setText(text.toString().trim());
     }
 
     private static void setupInputForType(BlockType type, EditText etCode) {
         switch (type) {
             case VARIABLE_DECLARATION:
-                etCode.setHint("int x, y, z");
+                etCode.setHint("int x, y  /  double d  /  int[] a = new int[10]");
                 etCode.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS);
                 break;
             case ASSIGNMENT:
@@ -98,10 +190,12 @@ public class BlockEditorDialog {
     private static void validateBlockCode(BlockType type, String code) {
         switch (type) {
             case VARIABLE_DECLARATION:
-                if (!code.startsWith("int ")) {
-                    throw new RuntimeException("Объявление переменной должно начинаться с 'int '");
+                String keyword = code.split("\\s", 2)[0];
+                if (!code.startsWith("int ") && !code.startsWith("long ") && !code.startsWith("double ") &&
+                        !code.startsWith("int[] ")) {
+                    throw new RuntimeException("Объявление переменной должно начинаться с 'int ', 'long ', 'double ' или 'int[] '");
                 }
-                if (code.substring(4).trim().isEmpty()) {
+                if (code.substring(keyword.length()).trim().isEmpty()) {
                     throw new RuntimeException("Не указаны имена переменных");
                 }
                 break;
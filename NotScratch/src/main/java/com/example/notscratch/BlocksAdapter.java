@@ -1,29 +1,69 @@
 package com.example.notscratch;
 
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.core.graphics.ColorUtils;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.notscratch.R;
 import com.example.notscratch.Block;
+import com.example.notscratch.ExecutionProfile;
+import com.google.android.material.card.MaterialCardView;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class BlocksAdapter extends RecyclerView.Adapter<BlocksAdapter.BlockViewHolder> {
-    private final List<Block> blocks;
+    public static final Object PAYLOAD_CODE = "code";
+    public static final Object PAYLOAD_DESCRIPTION = "description";
+    private static final Object PAYLOAD_PROFILE = "profile";
+    private static final Object PAYLOAD_DEBUG = "debug";
+    public static final long BREAK_ON_BLOCK = -1;
+
     private final OnBlockInteractionListener interactionListener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService diffExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "blocks-diff");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private List<Block> blocks = new ArrayList<>();
+    private Map<Block, Integer> positions = new IdentityHashMap<>();
+    private int submitGeneration;
+    private int pendingDiffs;
+    private int dragFrom = RecyclerView.NO_POSITION;
+    private int dragTo;
+    private List<Block> deferredBlocks;
+    private final Map<Block, Integer> profiledIndices = new IdentityHashMap<>();
+    private ExecutionProfile profile;
+    private int[] profiledVersions;
+    private Map<Long, Long> breakpoints = Collections.emptyMap();
+    private Block pausedBlock;
 
     public interface OnBlockInteractionListener {
         void onBlockMoved(int from, int to);
-        void onBlockEdited(int position);
-        void onBlockDeleted(int position);
+        void onBlockEdited(Block block, int position);
+        void onBlockDeleted(Block block, int position);
+        void onBreakpointClicked(Block block);
     }
 
-    public BlocksAdapter(List<Block> blocks, OnBlockInteractionListener interactionListener) {
-        this.blocks = blocks;
+    public BlocksAdapter(OnBlockInteractionListener interactionListener) {
         this.interactionListener = interactionListener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -31,13 +71,38 @@ public class BlocksAdapter extends RecyclerView.Adapter<BlocksAdapter.BlockViewH
     public BlockViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_block, parent, false);
-        return new BlockViewHolder(view, interactionListener);
+        return new BlockViewHolder(view, this);
     }
 
     @Override
     public void onBindViewHolder(@NonNull BlockViewHolder holder, int position) {
         Block block = blocks.get(position);
-        holder.bind(block);
+        holder.bindLabel(block);
+        holder.bindCode(block);
+        holder.bindProfile(profile, profileIndexOf(block));
+        holder.bindDebug(breakpoints.get(block.getId()), isPaused(block));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull BlockViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        Block block = blocks.get(position);
+        for (Object payload : payloads) {
+            if (payload == PAYLOAD_CODE) {
+                holder.bindCode(block);
+                holder.bindProfile(profile, profileIndexOf(block));
+            } else if (payload == PAYLOAD_DESCRIPTION) {
+                holder.bindLabel(block);
+            } else if (payload == PAYLOAD_PROFILE) {
+                holder.bindProfile(profile, profileIndexOf(block));
+            } else if (payload == PAYLOAD_DEBUG) {
+                holder.bindDebug(breakpoints.get(block.getId()), isPaused(block));
+            }
+        }
     }
 
     @Override
@@ -45,69 +110,282 @@ public class BlocksAdapter extends RecyclerView.Adapter<BlocksAdapter.BlockViewH
         return blocks.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return blocks.get(position).getId();
+    }
+
+    public Block getBlock(int position) {
+        return blocks.get(position);
+    }
+
+    public boolean isDiffPending() {
+        return pendingDiffs > 0;
+    }
+
+    public void submitBlocks(List<Block> newBlocks) {
+        if (dragFrom != RecyclerView.NO_POSITION) {
+            deferredBlocks = newBlocks;
+            return;
+        }
+
+        List<Block> oldBlocks = blocks;
+        List<Block> snapshot = new ArrayList<>(newBlocks);
+        int generation = ++submitGeneration;
+
+        if (oldBlocks.isEmpty() || snapshot.isEmpty()) {
+            blocks = snapshot;
+            positions = positionsOf(snapshot);
+            if (!oldBlocks.isEmpty()) {
+                notifyItemRangeRemoved(0, oldBlocks.size());
+            }
+            if (!snapshot.isEmpty()) {
+                notifyItemRangeInserted(0, snapshot.size());
+            }
+            return;
+        }
+
+        pendingDiffs++;
+        diffExecutor.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new BlockDiff(oldBlocks, snapshot), false);
+            Map<Block, Integer> snapshotPositions = positionsOf(snapshot);
+            mainHandler.post(() -> {
+                pendingDiffs--;
+                if (generation == submitGeneration) {
+                    blocks = snapshot;
+                    positions = snapshotPositions;
+                    result.dispatchUpdatesTo(this);
+                }
+            });
+        });
+    }
+
+    public void notifyBlockChanged(Block block, Object payload) {
+        Integer position = positions.get(block);
+        if (position != null) {
+            notifyItemChanged(position, payload);
+        }
+    }
+
+    private static Map<Block, Integer> positionsOf(List<Block> blocks) {
+        Map<Block, Integer> positions = new IdentityHashMap<>(blocks.size());
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            positions.put(blocks.get(i), i);
+        }
+        return positions;
+    }
+
+    public void shutdown() {
+        mainHandler.removeCallbacksAndMessages(null);
+        diffExecutor.shutdownNow();
+    }
+
+    public void setProfile(ExecutionProfile profile, List<Block> profiledBlocks) {
+        this.profile = profile;
+        profiledIndices.clear();
+        profiledVersions = new int[profiledBlocks.size()];
+        for (int i = 0; i < profiledBlocks.size(); i++) {
+            profiledIndices.put(profiledBlocks.get(i), i);
+            profiledVersions[i] = profiledBlocks.get(i).getVersion();
+        }
+        notifyItemRangeChanged(0, blocks.size(), PAYLOAD_PROFILE);
+    }
+
+    public void setBreakpoints(Map<Long, Long> breakpoints) {
+        this.breakpoints = breakpoints;
+        notifyItemRangeChanged(0, blocks.size(), PAYLOAD_DEBUG);
+    }
+
+    public void notifyBreakpointChanged(Block block) {
+        notifyBlockChanged(block, PAYLOAD_DEBUG);
+    }
+
+    public void setPausedBlock(Block block) {
+        Block previous = pausedBlock;
+        pausedBlock = block;
+        if (previous != null) {
+            notifyBlockChanged(previous, PAYLOAD_DEBUG);
+        }
+        if (block != null) {
+            notifyBlockChanged(block, PAYLOAD_DEBUG);
+        }
+    }
+
+    private boolean isPaused(Block block) {
+        return pausedBlock != null && pausedBlock.getId() == block.getId();
+    }
+
+    private int profileIndexOf(Block block) {
+        Integer index = profiledIndices.get(block);
+        if (profile == null || index == null || index >= profile.getBlockCount() ||
+                profiledVersions[index] != block.getVersion()) {
+            return -1;
+        }
+        return index;
+    }
+
     public void moveItem(int fromPosition, int toPosition) {
         if (fromPosition < 0 || fromPosition >= blocks.size() ||
                 toPosition < 0 || toPosition >= blocks.size()) {
             return;
         }
+        if (pendingDiffs > 0) {
+            blocks = new ArrayList<>(blocks);
+        }
+        if (dragFrom == RecyclerView.NO_POSITION) {
+            dragFrom = fromPosition;
+        }
+        dragTo = toPosition;
 
-        Block movedItem = blocks.remove(fromPosition);
-        blocks.add(toPosition, movedItem);
+        if (Math.abs(fromPosition - toPosition) == 1) {
+            Collections.swap(blocks, fromPosition, toPosition);
+        } else {
+            blocks.add(toPosition, blocks.remove(fromPosition));
+        }
+        for (int i = Math.min(fromPosition, toPosition); i <= Math.max(fromPosition, toPosition); i++) {
+            positions.put(blocks.get(i), i);
+        }
         notifyItemMoved(fromPosition, toPosition);
+    }
 
-        if (interactionListener != null) {
-            interactionListener.onBlockMoved(fromPosition, toPosition);
+    public void finishDrag() {
+        int from = dragFrom;
+        dragFrom = RecyclerView.NO_POSITION;
+        if (from != dragTo && from != RecyclerView.NO_POSITION && interactionListener != null) {
+            interactionListener.onBlockMoved(from, dragTo);
+        }
+
+        if (deferredBlocks != null) {
+            List<Block> newBlocks = deferredBlocks;
+            deferredBlocks = null;
+            submitBlocks(newBlocks);
         }
     }
 
-    public void removeItem(int position) {
-        if (position < 0 || position >= blocks.size()) {
-            return;
+    private static final class BlockDiff extends DiffUtil.Callback {
+        private final List<Block> oldBlocks;
+        private final List<Block> newBlocks;
+
+        BlockDiff(List<Block> oldBlocks, List<Block> newBlocks) {
+            this.oldBlocks = oldBlocks;
+            this.newBlocks = newBlocks;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldBlocks.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newBlocks.size();
         }
 
-        blocks.remove(position);
-        notifyItemRemoved(position);
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return oldBlocks.get(oldPosition).getId() == newBlocks.get(newPosition).getId();
+        }
 
-        if (interactionListener != null) {
-            interactionListener.onBlockDeleted(position);
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            Block oldBlock = oldBlocks.get(oldPosition);
+            Block newBlock = newBlocks.get(newPosition);
+            return oldBlock == newBlock || (oldBlock.getCode().equals(newBlock.getCode()) &&
+                    Objects.equals(oldBlock.getDescription(), newBlock.getDescription()));
+        }
+
+        @Override
+        public Object getChangePayload(int oldPosition, int newPosition) {
+            Block oldBlock = oldBlocks.get(oldPosition);
+            Block newBlock = newBlocks.get(newPosition);
+            if (!oldBlock.getCode().equals(newBlock.getCode())) {
+                return Objects.equals(oldBlock.getDescription(), newBlock.getDescription()) ? PAYLOAD_CODE : null;
+            }
+            return PAYLOAD_DESCRIPTION;
         }
     }
 
     static class BlockViewHolder extends RecyclerView.ViewHolder {
+        private static final int COLD_COLOR = Color.parseColor("#4CAF50");
+        private static final int HOT_COLOR = Color.parseColor("#F44336");
+
         private final TextView tvBlockType;
         private final TextView tvBlockText;
         private final ImageButton btnDelete;
+        private final TextView tvHeat;
+        private final TextView tvBreakpoint;
+        private final Drawable heatBackground;
 
-        BlockViewHolder(View itemView, OnBlockInteractionListener listener) {
+        BlockViewHolder(View itemView, BlocksAdapter adapter) {
             super(itemView);
             tvBlockType = itemView.findViewById(R.id.tvBlockType);
             tvBlockText = itemView.findViewById(R.id.tvBlockText);
             btnDelete = itemView.findViewById(R.id.btnDelete);
+            tvHeat = itemView.findViewById(R.id.tvHeat);
+            tvBreakpoint = itemView.findViewById(R.id.tvBreakpoint);
+            heatBackground = tvHeat.getBackground().mutate();
 
-            setupListeners(listener);
+            setupListeners(adapter);
+        }
+
+        void bindLabel(Block block) {
+            String description = block.getDescription();
+            if (description == null || description.isEmpty()) {
+                tvBlockType.setText(block.getType().getDisplayName());
+            } else {
+                tvBlockType.setText(block.getType().getDisplayName() + ": " + description);
+            }
         }
 
-        void bind(Block block) {
-            tvBlockType.setText(block.getType().getDisplayName());
+        void bindCode(Block block) {
             tvBlockText.setText(block.getCode());
+        }
+
+        void bindProfile(ExecutionProfile profile, int index) {
+            if (index < 0 || !profile.isExecuted(index)) {
+                tvHeat.setVisibility(View.GONE);
+                return;
+            }
+
+            tvHeat.setVisibility(View.VISIBLE);
+            tvHeat.setText(String.format(Locale.getDefault(), "%d%% · %s",
+                    profile.getTimeShare(index), ExecutionProfile.formatNanos(profile.getNanos(index))));
+            heatBackground.setTint(ColorUtils.blendARGB(COLD_COLOR, HOT_COLOR, profile.getHeat(index)));
+        }
 
-            if (block.getDescription() != null && !block.getDescription().isEmpty()) {
-                tvBlockType.append(": " + block.getDescription());
+        void bindDebug(Long breakpoint, boolean paused) {
+            if (breakpoint == null) {
+                tvBreakpoint.setText("○");
+                tvBreakpoint.setTextColor(itemView.getResources().getColor(R.color.text_secondary));
+            } else {
+                tvBreakpoint.setText(breakpoint == BREAK_ON_BLOCK ? "●" :
+                        breakpoint == Debugger.EVERY_ITERATION ? "● ∞" : "● #" + breakpoint);
+                tvBreakpoint.setTextColor(itemView.getResources().getColor(R.color.error));
             }
+            ((MaterialCardView) itemView).setStrokeColor(itemView.getResources()
+                    .getColor(paused ? R.color.secondary : R.color.primary_light));
         }
 
-        private void setupListeners(OnBlockInteractionListener listener) {
+        private void setupListeners(BlocksAdapter adapter) {
+            OnBlockInteractionListener listener = adapter.interactionListener;
             btnDelete.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && listener != null) {
-                    listener.onBlockDeleted(position);
+                    listener.onBlockDeleted(adapter.getBlock(position), position);
+                }
+            });
+
+            tvBreakpoint.setOnClickListener(v -> {
+                int position = getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && listener != null) {
+                    listener.onBreakpointClicked(adapter.getBlock(position));
                 }
             });
 
             itemView.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && listener != null) {
-                    listener.onBlockEdited(position);
+                    listener.onBlockEdited(adapter.getBlock(position), position);
                 }
             });
         }
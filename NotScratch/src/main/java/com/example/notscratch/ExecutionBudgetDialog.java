@@ -0,0 +1,49 @@
+package com.example.notscratch;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
+import com.example.notscratch.R;
+
+public class ExecutionBudgetDialog {
+    public interface OnBudgetSavedListener {
+        void onBudgetSaved(ExecutionBudget budget);
+    }
+
+    public static void show(Context context, ExecutionBudget budget, OnBudgetSavedListener listener) {
+        AlertDialog.Builder builder = new AlertDialog.Builder(context);
+        builder.setTitle("Лимиты выполнения");
+
+        View view = LayoutInflater.from(context).inflate(R.layout.dialog_execution_budget, null);
+        builder.setView(view);
+
+        EditText etMaxInstructions = view.findViewById(R.id.etMaxInstructions);
+        EditText etMaxMillis = view.findViewById(R.id.etMaxMillis);
+        EditText etMaxMemory = view.findViewById(R.id.etMaxMemory);
+
+        etMaxInstructions.setText(String.valueOf(budget.getMaxInstructions()));
+        etMaxMillis.setText(String.valueOf(budget.getMaxMillis()));
+        etMaxMemory.setText(String.valueOf(budget.getMaxMemoryBytes() / 1024));
+
+        builder.setPositiveButton("Сохранить", (dialog, which) -> {
+            try {
+                listener.onBudgetSaved(new ExecutionBudget(
+                        Long.parseLong(etMaxInstructions.getText().toString().trim()),
+                        Long.parseLong(etMaxMillis.getText().toString().trim()),
+                        Long.parseLong(etMaxMemory.getText().toString().trim()) * 1024));
+            } catch (NumberFormatException e) {
+                Toast.makeText(context, "Ошибка: лимиты должны быть целыми числами", Toast.LENGTH_LONG).show();
+            } catch (Exception e) {
+                Toast.makeText(context, "Ошибка: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+
+        builder.setNeutralButton("По умолчанию", (dialog, which) ->
+                listener.onBudgetSaved(ExecutionBudget.defaults()));
+        builder.setNegativeButton("Отмена", null);
+        builder.show();
+    }
+}
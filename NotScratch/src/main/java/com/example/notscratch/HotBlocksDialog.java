@@ -0,0 +1,85 @@
+package com.example.notscratch;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+import android.widget.RadioGroup;
+import androidx.appcompat.app.AlertDialog;
+import com.example.notscratch.R;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public class HotBlocksDialog {
+    public interface OnBlockSelectedListener {
+        void onBlockSelected(int block);
+    }
+
+    public static void show(Context context, ExecutionProfile profile, List<Block> blocks,
+                            OnBlockSelectedListener listener) {
+        AlertDialog.Builder builder = new AlertDialog.Builder(context);
+        builder.setTitle(String.format(Locale.getDefault(), "Самые горячие блоки · %s",
+                ExecutionProfile.formatNanos(profile.getTotalNanos())));
+
+        View view = LayoutInflater.from(context).inflate(R.layout.dialog_hot_blocks, null);
+        builder.setView(view);
+        builder.setNegativeButton("Закрыть", null);
+        AlertDialog dialog = builder.create();
+
+        RadioGroup rgSortKey = view.findViewById(R.id.rgSortKey);
+        ListView lvHotBlocks = view.findViewById(R.id.lvHotBlocks);
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(context, android.R.layout.simple_list_item_1,
+                new ArrayList<>());
+        lvHotBlocks.setAdapter(adapter);
+
+        int[][] order = { fill(adapter, profile, blocks, ExecutionProfile.SortKey.TIME) };
+        rgSortKey.setOnCheckedChangeListener((group, checkedId) ->
+                order[0] = fill(adapter, profile, blocks, sortKeyFor(checkedId)));
+        lvHotBlocks.setOnItemClickListener((parent, itemView, position, id) -> {
+            dialog.dismiss();
+            listener.onBlockSelected(order[0][position]);
+        });
+
+        dialog.show();
+    }
+
+    private static ExecutionProfile.SortKey sortKeyFor(int checkedId) {
+        if (checkedId == R.id.rbSortInstructions) {
+            return ExecutionProfile.SortKey.INSTRUCTIONS;
+        }
+        if (checkedId == R.id.rbSortEvaluations) {
+            return ExecutionProfile.SortKey.EVALUATIONS;
+        }
+        return ExecutionProfile.SortKey.TIME;
+    }
+
+    private static int[] fill(ArrayAdapter<String> adapter, ExecutionProfile profile, List<Block> blocks,
+                              ExecutionProfile.SortKey key) {
+        int[] hottest = profile.getHottestBlocks(key);
+        int[] shown = new int[hottest.length];
+        int count = 0;
+
+        adapter.clear();
+        for (int block : hottest) {
+            if (!profile.isExecuted(block)) {
+                continue;
+            }
+            shown[count++] = block;
+            adapter.add(String.format(Locale.getDefault(),
+                    "#%d %s · %s (%d%%)\n%s\nинструкций: %d · вычислений: %d · итераций: %d",
+                    block + 1, profile.getBlockType(block).getDisplayName(),
+                    ExecutionProfile.formatNanos(profile.getNanos(block)), profile.getTimeShare(block),
+                    firstLine(blocks.get(block).getCode()),
+                    profile.getInstructions(block), profile.getEvaluations(block), profile.getIterations(block)));
+        }
+        return Arrays.copyOf(shown, count);
+    }
+
+    private static String firstLine(String code) {
+        int lineEnd = code.indexOf('\n');
+        return lineEnd >= 0 ? code.substring(0, lineEnd) + " …" : code;
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.notscratch;
 
 import android.os.Bundle;
+import android.text.InputType;
+import android.view.View;
+import android.widget.EditText;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.ItemTouchHelper;
@@ -8,54 +11,420 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.notscratch.BlocksAdapter;
 import com.example.notscratch.Block;
+import com.example.notscratch.BlockSequence;
 import com.example.notscratch.BlockType;
 import com.example.notscratch.VariableManager;
 import com.example.notscratch.BlockDragHelper;
 import com.example.notscratch.ExpressionEvaluator;
 import com.example.notscratch.BlockEditorDialog;
+import com.example.notscratch.BlockPreview;
+import com.example.notscratch.CompiledProgram;
+import com.example.notscratch.Debugger;
+import com.example.notscratch.ExecutionBudget;
+import com.example.notscratch.ExecutionBudgetDialog;
+import com.example.notscratch.ExecutionProfile;
+import com.example.notscratch.HotBlocksDialog;
+import com.example.notscratch.OutputBuffer;
+import com.example.notscratch.OutputConsole;
+import com.example.notscratch.ProgramExecutor;
+import com.example.notscratch.ProgramHistory;
+import com.example.notscratch.ProgramRunner;
+import com.example.notscratch.ProgramStorage;
+import com.example.notscratch.VirtualMachine;
+import com.google.android.material.button.MaterialButton;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.snackbar.Snackbar;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 
 public class MainActivity extends AppCompatActivity implements BlocksAdapter.OnBlockInteractionListener {
+
     private RecyclerView blocksRecyclerView;
     private BlocksAdapter blocksAdapter;
-    private final List<Block> blocksList = new ArrayList<>();
-    private final VariableManager variableManager = new VariableManager();
-    private ExpressionEvaluator expressionEvaluator;
+    private final BlockSequence blocksList = new BlockSequence();
+    private final ProgramExecutor programExecutor = new ProgramExecutor();
+    private final BlockPreview blockPreview = new BlockPreview();
+    private List<Block> profiledBlocks = new ArrayList<>();
     private TextView tvOutput;
+    private OutputBuffer outputBuffer;
+    private OutputConsole outputConsole;
+    private MaterialButton btnRun;
+    private MaterialButton btnDebug;
+    private MaterialButton btnUndo;
+    private MaterialButton btnRedo;
+    private MaterialButton btnLive;
+    private boolean liveMode;
+    private boolean liveRunActive;
+    private boolean liveRunPending;
+    private ProgramRunner programRunner;
+    private ExecutionBudget executionBudget = ExecutionBudget.defaults();
+    private ProgramStorage programStorage;
+    private ProgramHistory programHistory;
+    private boolean programLoaded;
+    private final Debugger debugger = new Debugger();
+    private final Map<Long, Long> breakpoints = new HashMap<>();
+    private Debugger.Pause lastPause;
+    private View debugPanel;
+    private TextView tvDebugStatus;
+    private TextView tvWatches;
+    private EditText etWatch;
+    private MaterialButton[] pausedControls;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        expressionEvaluator = new ExpressionEvaluator(variableManager);
+        outputBuffer = new OutputBuffer(getResources().getInteger(R.integer.output_max_lines));
+        programRunner = new ProgramRunner(programExecutor, outputBuffer);
+        programExecutor.setIncremental(true);
         initializeViews();
         setupRecyclerView();
+        setupHistory();
         setupButtons();
+        setupDebugger();
+        loadProgram();
+    }
+
+    @Override
+    protected void onStop() {
+        if (programLoaded) {
+            programStorage.compact(blocksList);
+        }
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        programRunner.shutdown();
+        programStorage.shutdown();
+        blocksAdapter.shutdown();
+        outputConsole.detach();
+        super.onDestroy();
     }
 
     private void initializeViews() {
         blocksRecyclerView = findViewById(R.id.blocksRecyclerView);
         tvOutput = findViewById(R.id.tvOutput);
+        btnRun = findViewById(R.id.btnRun);
+        btnDebug = findViewById(R.id.btnDebug);
+        btnUndo = findViewById(R.id.btnUndo);
+        btnRedo = findViewById(R.id.btnRedo);
+        btnLive = findViewById(R.id.btnLive);
+        outputConsole = new OutputConsole(findViewById(R.id.outputRecyclerView), outputBuffer);
+        debugPanel = findViewById(R.id.debugPanel);
+        tvDebugStatus = findViewById(R.id.tvDebugStatus);
+        tvWatches = findViewById(R.id.tvWatches);
+        etWatch = findViewById(R.id.etWatch);
     }
 
     private void setupRecyclerView() {
-        blocksAdapter = new BlocksAdapter(blocksList, this);
+        blocksAdapter = new BlocksAdapter(this);
         blocksRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         blocksRecyclerView.setAdapter(blocksAdapter);
+        blocksAdapter.setBreakpoints(breakpoints);
 
         ItemTouchHelper.Callback callback = new BlockDragHelper(blocksAdapter);
         ItemTouchHelper touchHelper = new ItemTouchHelper(callback);
         touchHelper.attachToRecyclerView(blocksRecyclerView);
     }
 
+    private void loadProgram() {
+        programStorage = new ProgramStorage(new File(getFilesDir(), "program.nsb"), new ProgramStorage.Listener() {
+            @Override
+            public void onLoaded(List<Block> blocks) {
+                boolean editedWhileLoading = !blocksList.isEmpty();
+                blocksList.addAll(0, blocks);
+                blocksAdapter.submitBlocks(blocksList);
+                programHistory.reset();
+                updateHistoryButtons();
+                programLoaded = true;
+                if (editedWhileLoading) {
+                    programStorage.compact(blocksList);
+                }
+            }
+
+            @Override
+            public void onCompactionNeeded() {
+                programStorage.compact(blocksList);
+            }
+
+            @Override
+            public void onError(String message) {
+                showError(message);
+            }
+        });
+        programStorage.load(programExecutor.getVariableManager().getSymbols());
+    }
+
+    private void setupHistory() {
+        programHistory = new ProgramHistory(blocksList, new ProgramHistory.Listener() {
+            @Override
+            public void onInserted(int index, Block block) {
+                programStorage.insert(index, block);
+                onProgramChanged();
+            }
+
+            @Override
+            public void onRemoved(int index) {
+                programStorage.remove(index);
+                onProgramChanged();
+            }
+
+            @Override
+            public void onMoved(int from, int to) {
+                programStorage.move(from, to);
+                onProgramChanged();
+            }
+
+            @Override
+            public void onUpdated(int index, Block block, String previousCode, String previousDescription) {
+                boolean codeChanged = !previousCode.equals(block.getCode());
+                boolean descriptionChanged = !Objects.equals(previousDescription, block.getDescription());
+                blocksAdapter.notifyBlockChanged(block, !descriptionChanged ? BlocksAdapter.PAYLOAD_CODE :
+                        !codeChanged ? BlocksAdapter.PAYLOAD_DESCRIPTION : null);
+                programStorage.update(index, block);
+                updateHistoryButtons();
+                if (codeChanged) {
+                    runLive();
+                }
+            }
+
+            @Override
+            public void onReplaced() {
+                if (blocksList.isEmpty()) {
+                    programStorage.clear();
+                } else {
+                    programStorage.replace(blocksList);
+                }
+                onProgramChanged();
+            }
+        });
+    }
+
+    private void onProgramChanged() {
+        blocksAdapter.submitBlocks(blocksList);
+        updateHistoryButtons();
+        runLive();
+    }
+
+    private void toggleLiveMode() {
+        liveMode = !liveMode;
+        btnLive.setText(liveMode ? "⚡ Живой: вкл" : "⚡ Живой");
+        if (liveMode) {
+            runLive();
+        } else {
+            liveRunPending = false;
+        }
+    }
+
+    private void runLive() {
+        if (!liveMode || !programLoaded) {
+            return;
+        }
+        if (programRunner.isRunning()) {
+            liveRunPending = true;
+            if (liveRunActive) {
+                programRunner.cancel();
+            }
+            return;
+        }
+        liveRunActive = true;
+        executeProgram(false);
+    }
+
+    private void updateHistoryButtons() {
+        btnUndo.setEnabled(programHistory.canUndo());
+        btnRedo.setEnabled(programHistory.canRedo());
+    }
+
     private void setupButtons() {
+        btnUndo.setOnClickListener(v -> programHistory.undo());
+        btnRedo.setOnClickListener(v -> programHistory.redo());
+        btnLive.setOnClickListener(v -> toggleLiveMode());
         findViewById(R.id.btnAddBlock).setOnClickListener(v -> showAddBlockDialog());
         findViewById(R.id.btnClearAll).setOnClickListener(v -> clearAllBlocks());
-        findViewById(R.id.btnRun).setOnClickListener(v -> executeProgram());
+        btnRun.setOnClickListener(v -> {
+            if (programRunner.isRunning()) {
+                programRunner.cancel();
+            } else {
+                liveRunActive = false;
+                executeProgram(false);
+            }
+        });
+        btnDebug.setOnClickListener(v -> {
+            if (programRunner.isRunning()) {
+                programRunner.cancel();
+            } else {
+                liveRunActive = false;
+                executeProgram(true);
+            }
+        });
+        tvOutput.setOnClickListener(v -> showHotBlocks());
+        btnRun.setOnLongClickListener(v -> {
+            ExecutionBudgetDialog.show(this, executionBudget, budget -> {
+                executionBudget = budget;
+                Snackbar.make(blocksRecyclerView, "Лимиты выполнения обновлены", Snackbar.LENGTH_SHORT).show();
+            });
+            return true;
+        });
+    }
+
+    private void setupDebugger() {
+        MaterialButton btnResume = findViewById(R.id.btnResume);
+        MaterialButton btnStepInto = findViewById(R.id.btnStepInto);
+        MaterialButton btnStepOver = findViewById(R.id.btnStepOver);
+        pausedControls = new MaterialButton[] { btnResume, btnStepInto, btnStepOver };
+        btnResume.setOnClickListener(v -> debugger.resume());
+        btnStepInto.setOnClickListener(v -> debugger.stepInto());
+        btnStepOver.setOnClickListener(v -> debugger.stepOver());
+        findViewById(R.id.btnPause).setOnClickListener(v -> debugger.requestPause());
+        findViewById(R.id.btnAddWatch).setOnClickListener(v -> addWatch());
+        etWatch.setOnEditorActionListener((v, actionId, event) -> {
+            addWatch();
+            return true;
+        });
+        tvWatches.setOnClickListener(v -> showWatchRemoval());
+
+        debugger.setListener(new Debugger.Listener() {
+            @Override
+            public void onPaused(Debugger.Pause pause) {
+                runOnUiThread(() -> showPause(pause));
+            }
+
+            @Override
+            public void onResumed() {
+                runOnUiThread(() -> {
+                    setPausedControlsEnabled(false);
+                    tvDebugStatus.setText("▶ Выполняется…");
+                    blocksAdapter.setPausedBlock(null);
+                });
+            }
+        });
+    }
+
+    private void addWatch() {
+        String expression = etWatch.getText().toString().trim();
+        if (expression.isEmpty()) {
+            return;
+        }
+        debugger.addWatch(expression);
+        etWatch.setText("");
+        renderWatches();
+    }
+
+    private void showWatchRemoval() {
+        List<String> watches = new ArrayList<>(debugger.getWatches());
+        if (watches.isEmpty()) {
+            return;
+        }
+        new MaterialAlertDialogBuilder(this)
+                .setTitle("Убрать наблюдение")
+                .setItems(watches.toArray(new String[0]), (dialog, which) -> {
+                    debugger.removeWatch(watches.get(which));
+                    renderWatches();
+                })
+                .setNegativeButton("Отмена", null)
+                .show();
+    }
+
+    private void showPause(Debugger.Pause pause) {
+        lastPause = pause;
+        setPausedControlsEnabled(true);
+        String status = String.format(Locale.getDefault(), "⏸ Блок #%d (%s)",
+                pause.getBlock() + 1, pause.getBlockType().getDisplayName());
+        if (pause.getDepth() > 0) {
+            status += String.format(Locale.getDefault(), " · итерация %d, вложенность %d",
+                    pause.getIteration(), pause.getDepth());
+        }
+        tvDebugStatus.setText(status);
+        renderWatches();
+
+        Block block = profiledBlocks.get(pause.getBlock());
+        blocksAdapter.setPausedBlock(block);
+        int position = positionOf(block, pause.getBlock());
+        if (position >= 0) {
+            blocksRecyclerView.smoothScrollToPosition(position);
+        }
+    }
+
+    private void renderWatches() {
+        StringBuilder text = new StringBuilder();
+        for (String watch : debugger.getWatches()) {
+            String value = lastPause != null ? lastPause.getWatches().get(watch) : null;
+            text.append("👁 ").append(watch).append(" = ").append(value != null ? value : "…").append('\n');
+        }
+        if (lastPause != null) {
+            for (Map.Entry<String, String> variable : lastPause.getVariables().entrySet()) {
+                text.append(variable.getKey()).append(" = ").append(variable.getValue()).append('\n');
+            }
+        }
+        if (text.length() == 0) {
+            text.append("Нет наблюдаемых выражений");
+        } else {
+            text.setLength(text.length() - 1);
+        }
+        tvWatches.setText(text);
+    }
+
+    private void setPausedControlsEnabled(boolean enabled) {
+        for (MaterialButton button : pausedControls) {
+            button.setEnabled(enabled);
+        }
+    }
+
+    private void applyBreakpoints(List<Block> blocks) {
+        debugger.clearBreakpoints();
+        for (int i = 0; i < blocks.size(); i++) {
+            Long breakpoint = breakpoints.get(blocks.get(i).getId());
+            if (breakpoint == null) {
+                continue;
+            }
+            if (breakpoint == BlocksAdapter.BREAK_ON_BLOCK) {
+                debugger.setBlockBreakpoint(i);
+            } else {
+                debugger.setIterationBreakpoint(i, breakpoint);
+            }
+        }
+    }
+
+    private void setBreakpoint(Block block, Long breakpoint) {
+        if (breakpoint == null) {
+            breakpoints.remove(block.getId());
+        } else {
+            breakpoints.put(block.getId(), breakpoint);
+        }
+        blocksAdapter.notifyBreakpointChanged(block);
+        if (programRunner.isRunning()) {
+            applyBreakpoints(profiledBlocks);
+        }
+    }
+
+    private void showIterationBreakpointDialog(Block block) {
+        EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_NUMBER);
+        input.setHint("Номер итерации");
+        new MaterialAlertDialogBuilder(this)
+                .setTitle("Остановка на итерации")
+                .setView(input)
+                .setPositiveButton("Готово", (dialog, which) -> {
+                    try {
+                        long iteration = Long.parseLong(input.getText().toString().trim());
+                        if (iteration > 0) {
+                            setBreakpoint(block, iteration);
+                            return;
+                        }
+                    } catch (NumberFormatException ignored) {
+                    }
+                    showError("Номер итерации должен быть положительным числом");
+                })
+                .setNegativeButton("Отмена", null)
+                .show();
     }
 
     private void showAddBlockDialog() {
@@ -74,7 +443,7 @@ public class MainActivity extends AppCompatActivity implements BlocksAdapter.OnB
                     BlockType type = BlockType.values()[which];
                     String template = getTemplateForType(type);
                     Block newBlock = new Block(type, template, "");
-                    showEditBlockDialog(newBlock, false);
+                    showEditBlockDialog(newBlock, false, RecyclerView.NO_POSITION);
                 })
                 .show();
     }
@@ -91,14 +460,29 @@ public class MainActivity extends AppCompatActivity implements BlocksAdapter.OnB
         }
     }
 
-    private void showEditBlockDialog(Block block, boolean isEditMode) {
-        BlockEditorDialog.show(this, block, isEditMode, editedBlock -> {
+    private void showEditBlockDialog(Block block, boolean isEditMode, int position) {
+        String oldCode = block.getCode();
+        String oldDescription = block.getDescription();
+        int precedingCount = isEditMode ? Math.max(positionOf(block, position), 0) : blocksList.size();
+        List<Block> precedingBlocks = new ArrayList<>(precedingCount);
+        for (Block preceding : blocksList) {
+            if (precedingBlocks.size() == precedingCount) {
+                break;
+            }
+            precedingBlocks.add(preceding.copy());
+        }
+
+        BlockEditorDialog.show(this, block, isEditMode, precedingBlocks, blockPreview, editedBlock -> {
             if (!isEditMode) {
-                blocksList.add(editedBlock);
-                blocksAdapter.notifyItemInserted(blocksList.size() - 1);
+                programHistory.insert(blocksList.size(), editedBlock);
                 Snackbar.make(blocksRecyclerView, "Блок добавлен", Snackbar.LENGTH_SHORT).show();
-            } else {
-                blocksAdapter.notifyItemChanged(blocksList.indexOf(editedBlock));
+                return;
+            }
+
+            int editedPosition = positionOf(editedBlock, position);
+            if (editedPosition >= 0 && (!oldCode.equals(editedBlock.getCode()) ||
+                    !Objects.equals(oldDescription, editedBlock.getDescription()))) {
+                programHistory.recordEdit(editedPosition, oldCode, oldDescription);
             }
         });
     }
@@ -108,230 +492,125 @@ public class MainActivity extends AppCompatActivity implements BlocksAdapter.OnB
                 .setTitle("Очистить всё")
                 .setMessage("Вы уверены, что хотите удалить все блоки?")
                 .setPositiveButton("Да", (dialog, which) -> {
-                    blocksList.clear();
-                    blocksAdapter.notifyDataSetChanged();
-                    Snackbar.make(blocksRecyclerView, "Все блоки удалены", Snackbar.LENGTH_SHORT).show();
+                    programHistory.clear();
+                    Snackbar.make(blocksRecyclerView, "Все блоки удалены", Snackbar.LENGTH_LONG)
+                            .setAction("Отменить", v -> programHistory.undo())
+                            .show();
                 })
                 .setNegativeButton("Отмена", null)
                 .show();
     }
 
-    private void executeProgram() {
-        variableManager.clear();
-        StringBuilder output = new StringBuilder();
-        output.append("=== Начало выполнения программы ===\n\n");
+    private void executeProgram(boolean debug) {
+        if (!programLoaded) {
+            Snackbar.make(blocksRecyclerView, "Программа ещё загружается", Snackbar.LENGTH_SHORT).show();
+            return;
+        }
 
+        CompiledProgram program;
         try {
-            for (int i = 0; i < blocksList.size(); i++) {
-                Block block = blocksList.get(i);
-                try {
-                    output.append("▶ Блок #").append(i + 1).append(" (").append(block.getType().getDisplayName()).append("):\n");
-
-                    switch (block.getType()) {
-                        case VARIABLE_DECLARATION:
-                            handleVariableDeclaration(block.getCode());
-                            output.append("  Объявлены переменные: ").append(block.getCode().replace("int", "").trim()).append("\n");
-                            break;
-                        case ASSIGNMENT:
-                            handleAssignment(block.getCode());
-                            output.append("  Присвоено: ").append(block.getCode()).append("\n");
-                            break;
-                        case ARITHMETIC:
-                            int result = expressionEvaluator.evaluate(block.getCode());
-                            output.append("  Вычислено: ").append(block.getCode()).append(" = ").append(result).append("\n");
-                            break;
-                        case IF_STATEMENT:
-                            handleIfStatement(block.getCode(), output);
-                            break;
-                        case WHILE_LOOP:
-                            handleWhileLoop(block.getCode(), output);
-                            break;
-                        case FOR_LOOP:
-                            handleForLoop(block.getCode(), output);
-                            break;
-                    }
-
-                    output.append("\n");
-                } catch (Exception e) {
-                    String errorMsg = String.format("Ошибка в блоке #%d (%s): %s",
-                            i + 1, block.getType().getDisplayName(), e.getMessage());
-                    showError(errorMsg);
-                    output.append("  ❌ ").append(errorMsg).append("\n\n");
-                }
-            }
-
-            output.append("=== Состояние переменных ===\n");
-            variableManager.getAllVariables().forEach((name, value) ->
-                    output.append(name).append(" = ").append(value).append("\n"));
-
-            tvOutput.setText(output.toString());
+            program = debug ? programExecutor.compileForDebugging(blocksList) : programExecutor.compile(blocksList);
         } catch (Exception e) {
-            showError("Критическая ошибка выполнения: " + e.getMessage());
-            tvOutput.setText("❌ Программа завершена с ошибкой\n\n" + e.getMessage());
+            showProgramFailure(e);
+            return;
         }
-    }
-
-    private void handleVariableDeclaration(String code) {
-        String[] parts = code.replace("int", "").split(",");
-        for (String part : parts) {
-            String varName = part.trim();
-            if (!varName.isEmpty()) {
-                variableManager.declareVariable(varName);
-            }
+        programStorage.markCompiled();
+
+        profiledBlocks = new ArrayList<>(blocksList);
+        btnRun.setText("Стоп");
+        btnDebug.setText("Стоп");
+        lastPause = null;
+        if (debug) {
+            applyBreakpoints(profiledBlocks);
+            setPausedControlsEnabled(false);
+            tvDebugStatus.setText("▶ Выполняется…");
+            renderWatches();
         }
-    }
-
-    private void handleAssignment(String code) {
-        String[] parts = code.split("=", 2);
-        if (parts.length != 2) {
-            throw new RuntimeException("Некорректное присваивание: " + code);
-        }
-
-        String varName = parts[0].trim();
-        String expression = parts[1].trim();
-        int value = expressionEvaluator.evaluate(expression);
-        variableManager.setVariable(varName, value);
-    }
-
-    private void handleIfStatement(String code, StringBuilder output) {
-        String condition = code.substring(code.indexOf("(") + 1, code.indexOf(")")).trim();
-        String trueBlock = extractBlockContent(code, "{", "}");
-        String falseBlock = code.contains("else") ?
-                extractBlockContent(code.substring(code.indexOf("else")), "{", "}") : null;
-
-        boolean conditionMet = evaluateCondition(condition);
-        output.append("  Условие: ").append(condition).append(" - ").append(conditionMet ? "истина" : "ложь").append("\n");
-
-        if (conditionMet) {
-            output.append("  Выполняется блок if:\n");
-            executeBlock(trueBlock, output);
-        } else if (falseBlock != null) {
-            output.append("  Выполняется блок else:\n");
-            executeBlock(falseBlock, output);
-        }
-    }
-
-    private void handleWhileLoop(String code, StringBuilder output) {
-        String condition = code.substring(code.indexOf("(") + 1, code.indexOf(")")).trim();
-        String block = extractBlockContent(code, "{", "}");
-
-        int iteration = 0;
-        while (evaluateCondition(condition)) {
-            iteration++;
-            output.append("  Итерация ").append(iteration).append(": условие ").append(condition).append(" - истина\n");
-            executeBlock(block, output);
-
-            if (iteration > 1000) {
-                throw new RuntimeException("Превышено максимальное количество итераций (1000). Возможно бесконечный цикл");
+        debugPanel.setVisibility(debug ? View.VISIBLE : View.GONE);
+        Debugger attached = debug ? debugger : null;
+        VirtualMachine.OnErrorListener errorListener = liveRunActive ? message -> { } : this::showError;
+        ProgramRunner.Callback callback = new ProgramRunner.Callback() {
+            @Override
+            public void onProgress(int block, int blockCount, long iterations, long elapsedMillis) {
+                tvOutput.setText(String.format(Locale.getDefault(),
+                        "⏳ Блок #%d из %d · итераций: %d · %d мс",
+                        Math.max(block + 1, 1), blockCount, iterations, elapsedMillis));
             }
-        }
-        output.append("  Цикл while завершен после ").append(iteration).append(" итераций\n");
-    }
 
-    private void handleForLoop(String code, StringBuilder output) {
-        String[] parts = code.substring(code.indexOf("(") + 1, code.indexOf(")")).split(";");
-        if (parts.length != 3) {
-            throw new RuntimeException("Некорректный цикл for. Ожидается формат: for(инициализация; условие; инкремент)");
-        }
-
-        String init = parts[0].trim();
-        String condition = parts[1].trim();
-        String increment = parts[2].trim();
-        String block = extractBlockContent(code, "{", "}");
-
-        if (!init.isEmpty()) {
-            output.append("  Инициализация: ").append(init).append("\n");
-            handleAssignment(init);
-        }
-
-        int iteration = 0;
-        while (condition.isEmpty() || evaluateCondition(condition)) {
-            iteration++;
-            if (!condition.isEmpty()) {
-                output.append("  Итерация ").append(iteration).append(": условие ").append(condition).append(" - истина\n");
-            } else {
-                output.append("  Итерация ").append(iteration).append(" (безусловный цикл)\n");
+            @Override
+            public void onFinished() {
+                finishRun();
+                tvOutput.setText(String.format(Locale.getDefault(),
+                        "✅ Программа выполнена · пересчитано блоков: %d из %d · профиль ›",
+                        programExecutor.getRecomputedBlockCount(), profiledBlocks.size()));
+                showProfile();
             }
 
-            executeBlock(block, output);
-
-            if (!increment.isEmpty()) {
-                handleAssignment(increment);
+            @Override
+            public void onStopped(String reason) {
+                finishRun();
+                int lineEnd = reason.indexOf('\n');
+                tvOutput.setText("⏹ " + (lineEnd >= 0 ? reason.substring(0, lineEnd) : reason));
+                showProfile();
             }
 
-            if (iteration > 1000) {
-                throw new RuntimeException("Превышено максимальное количество итераций (1000). Возможно бесконечный цикл");
+            @Override
+            public void onFailed(Exception e) {
+                finishRun();
+                showProgramFailure(e);
             }
+        };
+        if (liveRunActive) {
+            programRunner.startLive(program, executionBudget, errorListener, callback);
+        } else {
+            programRunner.start(program, executionBudget, attached, errorListener, callback);
         }
-        output.append("  Цикл for завершен после ").append(iteration).append(" итераций\n");
     }
 
-    private boolean evaluateCondition(String condition) {
-        if (condition.isEmpty()) return true;
-
-        String[] operators = { ">=", "<=", "!=", "==", ">", "<" };
-        String op = "";
-        int opIndex = -1;
-
-        for (String operator : operators) {
-            opIndex = condition.indexOf(operator);
-            if (opIndex != -1) {
-                op = operator;
-                break;
-            }
+    private void finishRun() {
+        btnRun.setText("Старт");
+        btnDebug.setText("Отладка");
+        blocksAdapter.setPausedBlock(null);
+        setPausedControlsEnabled(false);
+        liveRunActive = false;
+        if (liveRunPending) {
+            liveRunPending = false;
+            runLive();
         }
-
-        if (op.isEmpty()) {
-            return expressionEvaluator.evaluate(condition) != 0;
+        if (debugPanel.getVisibility() == View.VISIBLE) {
+            tvDebugStatus.setText("⏹ Отладка завершена");
         }
+    }
 
-        String leftExpr = condition.substring(0, opIndex).trim();
-        String rightExpr = condition.substring(opIndex + op.length()).trim();
-
-        int leftVal = expressionEvaluator.evaluate(leftExpr);
-        int rightVal = expressionEvaluator.evaluate(rightExpr);
+    private void showProfile() {
+        blocksAdapter.setProfile(programExecutor.getVirtualMachine().getLastProfile(), profiledBlocks);
+    }
 
-        switch (op) {
-            case ">": return leftVal > rightVal;
-            case "<": return leftVal < rightVal;
-            case ">=": return leftVal >= rightVal;
-            case "<=": return leftVal <= rightVal;
-            case "==": return leftVal == rightVal;
-            case "!=": return leftVal != rightVal;
-            default: throw new RuntimeException("Неизвестный оператор: " + op);
+    private void showHotBlocks() {
+        ExecutionProfile profile = programExecutor.getVirtualMachine().getLastProfile();
+        if (profile == null || programRunner.isRunning()) {
+            Snackbar.make(blocksRecyclerView, "Профиль появится после выполнения программы", Snackbar.LENGTH_SHORT).show();
+            return;
         }
+
+        HotBlocksDialog.show(this, profile, profiledBlocks, block -> {
+            int position = positionOf(profiledBlocks.get(block), block);
+            if (position >= 0) {
+                blocksRecyclerView.smoothScrollToPosition(position);
+            }
+        });
     }
 
-    private String extractBlockContent(String code, String startDelim, String endDelim) {
-        int start = code.indexOf(startDelim) + 1;
-        int end = code.lastIndexOf(endDelim);
-        if (start < 0 || end < 0 || start >= end) {
-            return "";
+    private int positionOf(Block block, int position) {
+        if (position >= 0 && position < blocksList.size() && blocksList.get(position) == block) {
+            return position;
         }
-        return code.substring(start, end).trim();
+        return blocksList.indexOf(block);
     }
 
-    private void executeBlock(String blockCode, StringBuilder output) {
-        if (blockCode.isEmpty()) return;
-
-        String[] statements = blockCode.split(";");
-        for (String statement : statements) {
-            String trimmed = statement.trim();
-            if (trimmed.isEmpty()) continue;
-
-            try {
-                if (trimmed.contains("=")) {
-                    handleAssignment(trimmed);
-                    output.append("    Выполнено: ").append(trimmed).append("\n");
-                } else {
-                    int result = expressionEvaluator.evaluate(trimmed);
-                    output.append("    Вычислено: ").append(trimmed).append(" = ").append(result).append("\n");
-                }
-            } catch (Exception e) {
-                output.append("    ❌ Ошибка: ").append(trimmed).append(" - ").append(e.getMessage()).append("\n");
-                throw e;
-            }
-        }
+    private void showProgramFailure(Exception e) {
+        showError("Критическая ошибка выполнения: " + e.getMessage());
+        tvOutput.setText("❌ Программа завершена с ошибкой: " + e.getMessage());
     }
 
     private void showError(String message) {
@@ -343,28 +622,51 @@ public class MainActivity extends AppCompatActivity implements BlocksAdapter.OnB
 
     @Override
     public void onBlockMoved(int from, int to) {
+        programHistory.move(from, to);
+    }
+
+    @Override
+    public void onBlockEdited(Block block, int position) {
+        showEditBlockDialog(block, true, position);
     }
 
     @Override
-    public void onBlockEdited(int position) {
-        if (position >= 0 && position < blocksList.size()) {
-            showEditBlockDialog(blocksList.get(position), true);
+    public void onBreakpointClicked(Block block) {
+        Long current = breakpoints.get(block.getId());
+        if (block.getType() != BlockType.WHILE_LOOP && block.getType() != BlockType.FOR_LOOP) {
+            setBreakpoint(block, current == null ? BlocksAdapter.BREAK_ON_BLOCK : null);
+            return;
         }
+
+        String[] options = {
+                "Перед блоком",
+                "На каждой итерации",
+                "На итерации №…",
+                "Убрать точку останова"
+        };
+        new MaterialAlertDialogBuilder(this)
+                .setTitle("Точка останова")
+                .setItems(options, (dialog, which) -> {
+                    switch (which) {
+                        case 0: setBreakpoint(block, BlocksAdapter.BREAK_ON_BLOCK); break;
+                        case 1: setBreakpoint(block, Debugger.EVERY_ITERATION); break;
+                        case 2: showIterationBreakpointDialog(block); break;
+                        default: setBreakpoint(block, null); break;
+                    }
+                })
+                .show();
     }
 
     @Override
-    public void onBlockDeleted(int position) {
-        if (position >= 0 && position < blocksList.size()) {
-            Block deletedBlock = blocksList.get(position);
-            blocksList.remove(position);
-            blocksAdapter.notifyItemRemoved(position);
-
-            Snackbar.make(blocksRecyclerView, "Блок удалён", Snackbar.LENGTH_LONG)
-                    .setAction("Отменить", v -> {
-                        blocksList.add(position, deletedBlock);
-                        blocksAdapter.notifyItemInserted(position);
-                    })
-                    .show();
+    public void onBlockDeleted(Block deletedBlock, int adapterPosition) {
+        int position = positionOf(deletedBlock, adapterPosition);
+        if (position < 0) {
+            return;
         }
+        programHistory.remove(position);
+
+        Snackbar.make(blocksRecyclerView, "Блок удалён", Snackbar.LENGTH_LONG)
+                .setAction("Отменить", v -> programHistory.undo())
+                .show();
     }
 }
\ No newline at end of file
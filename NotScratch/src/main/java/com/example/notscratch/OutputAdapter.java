@@ -0,0 +1,69 @@
+package com.example.notscratch;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.example.notscratch.R;
+import java.util.Arrays;
+
+public class OutputAdapter extends RecyclerView.Adapter<OutputAdapter.LineViewHolder> {
+    private final String[] lines;
+    private int head;
+    private int count;
+
+    public OutputAdapter(int maxLines) {
+        this.lines = new String[maxLines];
+    }
+
+    @NonNull
+    @Override
+    public LineViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_output_line, parent, false);
+        return new LineViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull LineViewHolder holder, int position) {
+        holder.bind(lines[(head + position) % lines.length]);
+    }
+
+    @Override
+    public int getItemCount() {
+        return count;
+    }
+
+    boolean addLine(String line) {
+        boolean dropped = count == lines.length;
+        if (dropped) {
+            lines[head] = line;
+            head = (head + 1) % lines.length;
+        } else {
+            lines[(head + count) % lines.length] = line;
+            count++;
+        }
+        return dropped;
+    }
+
+    void clearLines() {
+        Arrays.fill(lines, null);
+        head = 0;
+        count = 0;
+    }
+
+    static class LineViewHolder extends RecyclerView.ViewHolder {
+        private final TextView tvLine;
+
+        LineViewHolder(View itemView) {
+            super(itemView);
+            tvLine = itemView.findViewById(R.id.tvLine);
+        }
+
+        void bind(String line) {
+            tvLine.setText(line);
+        }
+    }
+}
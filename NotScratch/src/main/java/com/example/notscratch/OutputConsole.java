@@ -0,0 +1,95 @@
+package com.example.notscratch;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class OutputConsole implements OutputBuffer.Listener, Choreographer.FrameCallback {
+    private final RecyclerView recyclerView;
+    private final LinearLayoutManager layoutManager;
+    private final OutputAdapter adapter;
+    private final OutputBuffer buffer;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private final Runnable scheduleFrame = () -> Choreographer.getInstance().postFrameCallback(this);
+
+    private int shownGeneration;
+    private long nextIndex;
+    private int added;
+    private int dropped;
+
+    public OutputConsole(RecyclerView recyclerView, OutputBuffer buffer) {
+        this.recyclerView = recyclerView;
+        this.buffer = buffer;
+        this.layoutManager = new LinearLayoutManager(recyclerView.getContext());
+        this.adapter = new OutputAdapter(buffer.getMaxLines());
+
+        layoutManager.setStackFromEnd(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+        recyclerView.setItemAnimator(null);
+
+        shownGeneration = buffer.getGeneration();
+        nextIndex = buffer.getFirstIndex();
+        buffer.setListener(this);
+        onOutputChanged();
+    }
+
+    public void detach() {
+        buffer.setListener(null);
+        mainHandler.removeCallbacks(scheduleFrame);
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void onOutputChanged() {
+        if (frameScheduled.compareAndSet(false, true)) {
+            mainHandler.post(scheduleFrame);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled.set(false);
+
+        int generation = buffer.getGeneration();
+        if (generation != shownGeneration) {
+            shownGeneration = generation;
+            adapter.clearLines();
+            adapter.notifyDataSetChanged();
+            nextIndex = buffer.getFirstIndex();
+        }
+
+        int oldCount = adapter.getItemCount();
+        boolean atBottom = oldCount == 0 ||
+                layoutManager.findLastVisibleItemPosition() >= oldCount - 1;
+
+        added = 0;
+        dropped = 0;
+        nextIndex = buffer.readSince(nextIndex, (index, line) -> {
+            added++;
+            if (adapter.addLine(line)) {
+                dropped++;
+            }
+        });
+        if (added == 0) {
+            return;
+        }
+
+        if (dropped > oldCount) {
+            adapter.notifyDataSetChanged();
+        } else {
+            if (dropped > 0) {
+                adapter.notifyItemRangeRemoved(0, dropped);
+            }
+            adapter.notifyItemRangeInserted(oldCount - dropped, added);
+        }
+
+        if (atBottom) {
+            recyclerView.scrollToPosition(adapter.getItemCount() - 1);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.notscratch;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ProgramRunner {
+    private static final long PROGRESS_INTERVAL_MS = 100;
+
+    public interface Callback {
+        void onProgress(int block, int blockCount, long iterations, long elapsedMillis);
+        void onFinished();
+        void onStopped(String reason);
+        void onFailed(Exception e);
+    }
+
+    private final ProgramExecutor programExecutor;
+    private final OutputBuffer output;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "program-runner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Run currentRun;
+    private Runnable progressTask;
+
+    public ProgramRunner(ProgramExecutor programExecutor, OutputBuffer output) {
+        this.programExecutor = programExecutor;
+        this.output = output;
+    }
+
+    public boolean isRunning() {
+        return currentRun != null;
+    }
+
+    public void start(CompiledProgram program, ExecutionBudget budget,
+                      VirtualMachine.OnErrorListener errorListener, Callback callback) {
+        start(program, budget, null, errorListener, callback);
+    }
+
+    public void start(CompiledProgram program, ExecutionBudget budget, Debugger debugger,
+                      VirtualMachine.OnErrorListener errorListener, Callback callback) {
+        start(program, budget, debugger, false, errorListener, callback);
+    }
+
+    public void startLive(CompiledProgram program, ExecutionBudget budget,
+                          VirtualMachine.OnErrorListener errorListener, Callback callback) {
+        start(program, budget, null, true, errorListener, callback);
+    }
+
+    private void start(CompiledProgram program, ExecutionBudget budget, Debugger debugger, boolean live,
+                       VirtualMachine.OnErrorListener errorListener, Callback callback) {
+        if (isRunning()) {
+            return;
+        }
+
+        long startTime = SystemClock.elapsedRealtime();
+        VirtualMachine virtualMachine = programExecutor.getVirtualMachine();
+        VirtualMachine.OnErrorListener mainThreadErrors =
+                message -> mainHandler.post(() -> errorListener.onError(message));
+
+        currentRun = new Run(program, budget, debugger, live, mainThreadErrors, callback);
+        executor.execute(currentRun);
+
+        progressTask = new Runnable() {
+            @Override
+            public void run() {
+                callback.onProgress(virtualMachine.getProgressBlock(), program.getBlockCount(),
+                        virtualMachine.getProgressIterations(), SystemClock.elapsedRealtime() - startTime);
+                mainHandler.postDelayed(this, PROGRESS_INTERVAL_MS);
+            }
+        };
+        mainHandler.post(progressTask);
+    }
+
+    public void cancel() {
+        if (currentRun != null) {
+            currentRun.cancel();
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        stopProgress();
+        mainHandler.removeCallbacksAndMessages(null);
+        executor.shutdownNow();
+    }
+
+    private final class Run implements Runnable {
+        private final CompiledProgram program;
+        private final ExecutionBudget budget;
+        private final Debugger debugger;
+        private final boolean live;
+        private final VirtualMachine.OnErrorListener errorListener;
+        private final Callback callback;
+        private volatile boolean cancelled;
+        private volatile Thread thread;
+
+        Run(CompiledProgram program, ExecutionBudget budget, Debugger debugger, boolean live,
+            VirtualMachine.OnErrorListener errorListener, Callback callback) {
+            this.program = program;
+            this.budget = budget;
+            this.debugger = debugger;
+            this.live = live;
+            this.errorListener = errorListener;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            Thread.interrupted();
+            thread = Thread.currentThread();
+            if (cancelled) {
+                thread.interrupt();
+            }
+
+            Runnable result;
+            try {
+                if (live) {
+                    programExecutor.executeLive(program, budget, output, errorListener);
+                } else {
+                    programExecutor.execute(program, budget, output, errorListener, debugger);
+                }
+                result = callback::onFinished;
+            } catch (ExecutionAbortedException e) {
+                output.append("\n⏹ ").append(e.getMessage()).append("\n");
+                result = () -> callback.onStopped(e.getMessage());
+            } catch (Exception e) {
+                result = () -> callback.onFailed(e);
+            } finally {
+                output.flush();
+                thread = null;
+                Thread.interrupted();
+            }
+
+            Runnable notifyCallback = result;
+            mainHandler.post(() -> finish(notifyCallback));
+        }
+
+        void cancel() {
+            cancelled = true;
+            Thread running = thread;
+            if (running != null) {
+                running.interrupt();
+            }
+        }
+    }
+
+    private void finish(Runnable notifyCallback) {
+        stopProgress();
+        currentRun = null;
+        notifyCallback.run();
+    }
+
+    private void stopProgress() {
+        if (progressTask != null) {
+            mainHandler.removeCallbacks(progressTask);
+            progressTask = null;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.notscratch;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ProgramStorage {
+    public interface Listener {
+        void onLoaded(List<Block> blocks);
+        void onCompactionNeeded();
+        void onError(String message);
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    private final File file;
+    private final ProgramStore store;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "program-storage");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean dirty;
+    private boolean compactionRequested;
+
+    public ProgramStorage(File file, Listener listener) {
+        this.file = file;
+        this.store = new ProgramStore(file);
+        this.listener = listener;
+    }
+
+    public void load(SymbolTable symbols) {
+        executor.execute(() -> {
+            List<Block> blocks;
+            String error = null;
+            try {
+                blocks = store.load(symbols);
+            } catch (IOException e) {
+                error = "Не удалось загрузить программу: " + e.getMessage();
+                file.renameTo(new File(file.getPath() + ".bak"));
+                try {
+                    blocks = store.load(symbols);
+                } catch (IOException retry) {
+                    blocks = new ArrayList<>();
+                }
+            }
+
+            List<Block> loaded = blocks;
+            String loadError = error;
+            mainHandler.post(() -> {
+                if (loadError != null) {
+                    listener.onError(loadError);
+                }
+                listener.onLoaded(loaded);
+            });
+        });
+    }
+
+    public void insert(int index, Block block) {
+        Block snapshot = block.copy();
+        submit(() -> store.insert(index, snapshot));
+    }
+
+    public void update(int index, Block block) {
+        Block snapshot = block.copy();
+        submit(() -> store.update(index, snapshot));
+    }
+
+    public void remove(int index) {
+        submit(() -> store.remove(index));
+    }
+
+    public void move(int from, int to) {
+        if (from != to) {
+            submit(() -> store.move(from, to));
+        }
+    }
+
+    public void clear() {
+        submit(() -> store.clear());
+    }
+
+    public void markCompiled() {
+        dirty = true;
+    }
+
+    public void replace(List<Block> blocks) {
+        dirty = true;
+        compact(blocks);
+    }
+
+    public void compact(List<Block> blocks) {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        compactionRequested = false;
+
+        List<Block> snapshot = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            snapshot.add(block.copy());
+        }
+        executor.execute(() -> {
+            try {
+                store.compact(snapshot);
+            } catch (IOException e) {
+                reportError(e);
+            }
+        });
+    }
+
+    public void shutdown() {
+        executor.execute(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                reportError(e);
+            }
+        });
+        executor.shutdown();
+    }
+
+    private void submit(Write write) {
+        dirty = true;
+        executor.execute(() -> {
+            try {
+                write.run();
+            } catch (IOException e) {
+                reportError(e);
+                return;
+            }
+            if (store.needsCompaction()) {
+                mainHandler.post(this::requestCompaction);
+            }
+        });
+    }
+
+    private void requestCompaction() {
+        if (!compactionRequested) {
+            compactionRequested = true;
+            listener.onCompactionNeeded();
+        }
+    }
+
+    private void reportError(IOException e) {
+        String message = "Не удалось сохранить программу: " + e.getMessage();
+        mainHandler.post(() -> listener.onError(message));
+    }
+}